@@ -0,0 +1,346 @@
+package cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class AnswerReader implements Iterator<int[]> {
+    public static final int CSV = 0;
+    public static final int JSONL = 1;
+    private static final int[] INVALID;
+    private IOException error;
+    private final ArrayList<String> fields;
+    private final int format;
+    private final BufferedReader in;
+    private int line;
+    private int[] next;
+    private final int questions;
+    private final ArrayDeque<Record> records;
+
+    public static class Record {
+        final String error;
+        final String id;
+        final int line;
+
+        Record(String id, int line, String error) {
+            this.id = id;
+            this.line = line;
+            this.error = error;
+        }
+
+        public String getId() {
+            return this.id;
+        }
+
+        public int getLine() {
+            return this.line;
+        }
+
+        public String getError() {
+            return this.error;
+        }
+    }
+
+    static {
+        INVALID = new int[0];
+    }
+
+    public AnswerReader(BufferedReader in, int format, int questions) {
+        this.in = in;
+        this.format = format;
+        this.questions = questions;
+        this.fields = new ArrayList<>();
+        this.records = new ArrayDeque<>();
+    }
+
+    public boolean hasNext() {
+        if (this.next == null && this.error == null) {
+            try {
+                this.next = readRecord();
+            } catch (IOException e) {
+                this.error = e;
+            }
+        }
+        return this.next != null;
+    }
+
+    public int[] next() {
+        if (hasNext()) {
+            int[] res = this.next;
+            this.next = null;
+            return res;
+        }
+        throw new NoSuchElementException();
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    public Record poll() {
+        return this.records.poll();
+    }
+
+    public IOException getError() {
+        return this.error;
+    }
+
+    private int[] readRecord() throws IOException {
+        String s;
+        do {
+            s = this.in.readLine();
+            if (s == null) {
+                return null;
+            }
+            this.line++;
+        } while (isBlank(s) || (this.line == 1 && this.format == CSV && isHeader(s)));
+        this.fields.clear();
+        String id = null;
+        try {
+            if (this.format == CSV) {
+                splitCsv(s);
+                id = this.fields.remove(0);
+            } else {
+                id = parseJson(s);
+            }
+            if (this.fields.size() != this.questions) {
+                throw new IllegalArgumentException("Expected " + this.questions + " answers, got " + this.fields.size());
+            }
+            int[] answers = new int[this.questions];
+            for (int i = 0; i < answers.length; i++) {
+                answers[i] = answer(this.fields.get(i), i);
+            }
+            this.records.add(new Record(id, this.line, null));
+            return answers;
+        } catch (IllegalArgumentException e) {
+            this.records.add(new Record(id, this.line, e.getMessage()));
+            return INVALID;
+        }
+    }
+
+    private static boolean isBlank(String s) {
+        return s.trim().length() == 0;
+    }
+
+    private static boolean isHeader(String s) {
+        return s.trim().toLowerCase().startsWith("id,") || s.trim().toLowerCase().startsWith("\"id\"");
+    }
+
+    private static int answer(String s, int question) {
+        if (s == null || s.length() == 0) {
+            return -1;
+        }
+        try {
+            int choice = Integer.parseInt(s.trim());
+            if (choice >= 1) {
+                return choice - 1;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException("Invalid answer \"" + s + "\" for question " + (question + 1));
+    }
+
+    private void splitCsv(String s) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (true) {
+            sb.setLength(0);
+            if (i < s.length() && s.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= s.length()) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    char c = s.charAt(i++);
+                    if (c == '"') {
+                        if (i >= s.length() || s.charAt(i) != '"') {
+                            break;
+                        }
+                        i++;
+                    }
+                    sb.append(c);
+                }
+                if (i < s.length() && s.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Unexpected character after quoted field");
+                }
+            } else {
+                while (i < s.length() && s.charAt(i) != ',') {
+                    sb.append(s.charAt(i++));
+                }
+            }
+            this.fields.add(sb.toString());
+            if (i >= s.length()) {
+                return;
+            }
+            i++;
+        }
+    }
+
+    private String parseJson(String s) {
+        JsonScanner json = new JsonScanner(s);
+        String id = null;
+        boolean answers = false;
+        json.expect('{');
+        if (!json.consume('}')) {
+            do {
+                String key = json.string();
+                json.expect(':');
+                if (key.equals("id")) {
+                    id = json.scalar();
+                } else if (key.equals("answers")) {
+                    answers = true;
+                    json.expect('[');
+                    if (!json.consume(']')) {
+                        do {
+                            this.fields.add(json.scalar());
+                        } while (json.consume(','));
+                        json.expect(']');
+                    }
+                } else {
+                    json.skipValue();
+                }
+            } while (json.consume(','));
+            json.expect('}');
+        }
+        json.end();
+        if (answers) {
+            return id;
+        }
+        throw new IllegalArgumentException("Record has no \"answers\" array");
+    }
+
+    private static class JsonScanner {
+        private int pos;
+        private final String s;
+
+        JsonScanner(String s) {
+            this.s = s;
+        }
+
+        private void space() {
+            while (this.pos < this.s.length() && Character.isWhitespace(this.s.charAt(this.pos))) {
+                this.pos++;
+            }
+        }
+
+        boolean consume(char c) {
+            space();
+            if (this.pos >= this.s.length() || this.s.charAt(this.pos) != c) {
+                return false;
+            }
+            this.pos++;
+            return true;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        void end() {
+            space();
+            if (this.pos < this.s.length()) {
+                throw error("Unexpected trailing characters");
+            }
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (this.pos < this.s.length()) {
+                char c = this.s.charAt(this.pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                } else if (this.pos >= this.s.length()) {
+                    break;
+                } else {
+                    c = this.s.charAt(this.pos++);
+                    switch (c) {
+                        case 'b':
+                            sb.append('\b');
+                            break;
+                        case 'f':
+                            sb.append('\f');
+                            break;
+                        case 'n':
+                            sb.append('\n');
+                            break;
+                        case 'r':
+                            sb.append('\r');
+                            break;
+                        case 't':
+                            sb.append('\t');
+                            break;
+                        case 'u':
+                            if (this.pos + 4 <= this.s.length()) {
+                                try {
+                                    sb.append((char) Integer.parseInt(this.s.substring(this.pos, this.pos + 4), 16));
+                                    this.pos += 4;
+                                    break;
+                                } catch (NumberFormatException e) {
+                                    throw error("Invalid unicode escape");
+                                }
+                            }
+                            throw error("Invalid unicode escape");
+                        default:
+                            sb.append(c);
+                            break;
+                    }
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        String scalar() {
+            space();
+            if (this.pos < this.s.length() && this.s.charAt(this.pos) == '"') {
+                return string();
+            }
+            int start = this.pos;
+            while (this.pos < this.s.length() && ",]}".indexOf(this.s.charAt(this.pos)) < 0 && !Character.isWhitespace(this.s.charAt(this.pos))) {
+                this.pos++;
+            }
+            if (start == this.pos) {
+                throw error("Expected a value");
+            }
+            String res = this.s.substring(start, this.pos);
+            return res.equals("null") ? null : res;
+        }
+
+        void skipValue() {
+            space();
+            if (this.pos >= this.s.length()) {
+                throw error("Expected a value");
+            }
+            char c = this.s.charAt(this.pos);
+            if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                this.pos++;
+                if (consume(close)) {
+                    return;
+                }
+                do {
+                    if (c == '{') {
+                        string();
+                        expect(':');
+                    }
+                    skipValue();
+                } while (consume(','));
+                expect(close);
+                return;
+            }
+            scalar();
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (this.pos + 1));
+        }
+    }
+}
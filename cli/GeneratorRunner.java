@@ -0,0 +1,191 @@
+package cli;
+
+import io.Parser;
+import io.SurveyGenerator;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+public class GeneratorRunner {
+    private static final int BUFFER_SIZE = 65536;
+    private static final String USAGE = "Usage: java cli.GeneratorRunner [options] <survey.txt|-> [answers.csv|answers.jsonl|-]\n\nOptions:\n  --preset realistic|extreme   start from a preset size (default: realistic)\n  --questions N                number of questions\n  --choices N                  choices per question\n  --types N                    number of types\n  --results N                  number of results\n  --seed N                     random seed (default: 42)\n  --answers N                  respondents to generate (default: 1000)\n  --unanswered P               fraction of questions left blank (default: 0)\n  --format csv|jsonl           answer format (default: from the file extension)\n\nWrites a synthetic survey in the text format and, if an answer file is given,\nmatching answer sheets for cli.ScoreRunner and cli.ItemAnalysisRunner. The same\nseed always gives the same files, and output is streamed, so very large inputs\ncan be written without holding them in memory.";
+    private long answers;
+    private String answersFile;
+    private int choices;
+    private int format;
+    private int questions;
+    private int results;
+    private long seed;
+    private String surveyFile;
+    private int types;
+    private double unanswered;
+
+    public static void main(String[] args) {
+        GeneratorRunner runner = new GeneratorRunner();
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            System.out.println(USAGE);
+            return;
+        }
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            runner.run();
+        } catch (Exception e2) {
+            System.err.println("Generation failed: " + e2.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public GeneratorRunner() {
+        this.format = -1;
+        this.seed = 42;
+        this.answers = 1000;
+        preset("realistic");
+    }
+
+    private void preset(String name) {
+        SurveyGenerator g;
+        if (name.equals("realistic")) {
+            g = SurveyGenerator.realistic(0);
+        } else if (name.equals("extreme")) {
+            g = SurveyGenerator.extreme(0);
+        } else {
+            throw new IllegalArgumentException("Unknown preset " + name);
+        }
+        this.questions = g.getQuestionCount();
+        this.choices = g.getChoiceCount();
+        this.types = g.getTypeCount();
+        this.results = g.getResultCount();
+    }
+
+    public void parseArgs(String[] args) {
+        int positional = 0;
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i];
+            if (arg.startsWith("--") && arg.length() > 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                i++;
+                String value = args[i];
+                if (arg.equals("--preset")) {
+                    preset(value);
+                } else if (arg.equals("--questions")) {
+                    this.questions = (int) positive(arg, value);
+                } else if (arg.equals("--choices")) {
+                    this.choices = (int) positive(arg, value);
+                } else if (arg.equals("--types")) {
+                    this.types = (int) positive(arg, value);
+                } else if (arg.equals("--results")) {
+                    this.results = (int) positive(arg, value);
+                } else if (arg.equals("--answers")) {
+                    this.answers = positive(arg, value);
+                } else if (arg.equals("--seed")) {
+                    try {
+                        this.seed = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("--seed needs a number, got " + value);
+                    }
+                } else if (arg.equals("--unanswered")) {
+                    try {
+                        this.unanswered = Double.parseDouble(value);
+                    } catch (NumberFormatException e2) {
+                        throw new IllegalArgumentException("--unanswered needs a number, got " + value);
+                    }
+                } else if (arg.equals("--format")) {
+                    if (value.equalsIgnoreCase("csv")) {
+                        this.format = AnswerReader.CSV;
+                    } else if (value.equalsIgnoreCase("jsonl")) {
+                        this.format = AnswerReader.JSONL;
+                    } else {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } else {
+                switch (positional) {
+                    case 0:
+                        this.surveyFile = arg;
+                        break;
+                    case 1:
+                        this.answersFile = arg;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Too many arguments");
+                }
+                positional++;
+            }
+            i++;
+        }
+        if (positional < 1) {
+            throw new IllegalArgumentException("Missing survey file");
+        }
+        if (this.surveyFile.equals("-") && this.answersFile != null && this.answersFile.equals("-")) {
+            throw new IllegalArgumentException("Only one of the survey and the answers can go to standard output");
+        }
+        if (this.format < 0) {
+            this.format = this.answersFile != null && (this.answersFile.toLowerCase().endsWith(".jsonl") || this.answersFile.toLowerCase().endsWith(".json")) ? AnswerReader.JSONL : AnswerReader.CSV;
+        }
+    }
+
+    private static long positive(String option, String value) {
+        try {
+            long n = Long.parseLong(value);
+            if (n > 0 && (n <= 2147483647L || option.equals("--answers"))) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException(option + " needs a positive number, got " + value);
+    }
+
+    public void run() throws Exception {
+        long start = System.nanoTime();
+        SurveyGenerator generator = new SurveyGenerator(this.questions, this.choices, this.types, this.results, this.seed);
+        generator.setUnansweredRate(this.unanswered);
+        Writer out = open(this.surveyFile);
+        try {
+            generator.write(out);
+            out.flush();
+        } finally {
+            close(out, this.surveyFile);
+        }
+        long bytes = 0;
+        if (this.answersFile != null) {
+            out = open(this.answersFile);
+            try {
+                bytes = generator.writeAnswers(out, this.answers, this.seed + 1, this.format == AnswerReader.JSONL);
+                out.flush();
+            } finally {
+                close(out, this.answersFile);
+            }
+        }
+        double seconds = ((double) (System.nanoTime() - start)) / 1.0E9d;
+        System.err.printf("Generated a %dx%d survey with %d types and %d results", new Object[]{Integer.valueOf(this.questions), Integer.valueOf(this.choices), Integer.valueOf(this.types), Integer.valueOf(this.results)});
+        if (this.answersFile != null) {
+            System.err.printf(" and %d answer sheets (%.1f MB)", new Object[]{Long.valueOf(this.answers), Double.valueOf(((double) bytes) / 1048576.0d)});
+        }
+        System.err.printf(" in %.1f s\n", new Object[]{Double.valueOf(seconds)});
+    }
+
+    private static Writer open(String file) throws IOException {
+        return new BufferedWriter(file.equals("-") ? new OutputStreamWriter(System.out, Parser.CHARSET) : new OutputStreamWriter(new FileOutputStream(file), Parser.CHARSET), BUFFER_SIZE);
+    }
+
+    private static void close(Writer out, String file) throws IOException {
+        if (file.equals("-")) {
+            out.flush();
+        } else {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package cli;
+
+import common.CompiledSurvey;
+import common.ItemAnalysis;
+import io.Parser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+
+public class ItemAnalysisRunner {
+    private static final int BUFFER_SIZE = 65536;
+    private static final String USAGE = "Usage: java cli.ItemAnalysisRunner [options] <survey.txt> <answers.csv|answers.jsonl|-> [items.csv|-]\n\nOptions:\n  --format csv|jsonl   input format (default: from the file extension, csv for stdin)\n  --threads N          analysis threads (default: number of processors)\n  --block N            records analysed per block (default: 8192)\n\nWrites one CSV row per choice and type the choice scores, with the selection\nrate, current and proposed weight, share of the type's points, mean type\nscore of the respondents who picked it and its discrimination (correlation\nwith the rest of the score).\nA per-type summary and the correlation between types go to standard error.\nProposed weights rescale every type to the same standard deviation.";
+    private int blockSize;
+    private String input;
+    private int inputFormat;
+    private String output;
+    private String survey;
+    private int threads;
+
+    private static class Sheets implements Iterator<int[]> {
+        private final AnswerReader records;
+
+        Sheets(AnswerReader records) {
+            this.records = records;
+        }
+
+        public boolean hasNext() {
+            return this.records.hasNext();
+        }
+
+        public int[] next() {
+            int[] answers = this.records.next();
+            this.records.poll();
+            return answers;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        ItemAnalysisRunner runner = new ItemAnalysisRunner();
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            System.out.println(USAGE);
+            return;
+        }
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            runner.run();
+        } catch (Exception e2) {
+            System.err.println("Analysis failed: " + e2.getMessage());
+            System.exit(1);
+        } catch (OutOfMemoryError e3) {
+            System.err.println("Analysis failed: out of memory, try a larger -Xmx or fewer --threads");
+            System.exit(1);
+        }
+    }
+
+    public ItemAnalysisRunner() {
+        this.inputFormat = -1;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.blockSize = 8192;
+    }
+
+    public void parseArgs(String[] args) {
+        int positional = 0;
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i];
+            if (arg.startsWith("--") && arg.length() > 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                i++;
+                String value = args[i];
+                if (arg.equals("--format")) {
+                    if (value.equalsIgnoreCase("csv")) {
+                        this.inputFormat = AnswerReader.CSV;
+                    } else if (value.equalsIgnoreCase("jsonl")) {
+                        this.inputFormat = AnswerReader.JSONL;
+                    } else {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                } else if (arg.equals("--threads")) {
+                    this.threads = positive(arg, value);
+                } else if (arg.equals("--block")) {
+                    this.blockSize = positive(arg, value);
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } else {
+                switch (positional) {
+                    case 0:
+                        this.survey = arg;
+                        break;
+                    case 1:
+                        this.input = arg;
+                        break;
+                    case 2:
+                        this.output = arg;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Too many arguments");
+                }
+                positional++;
+            }
+            i++;
+        }
+        if (positional < 2) {
+            throw new IllegalArgumentException("Missing survey or answer file");
+        }
+        if (this.inputFormat < 0) {
+            this.inputFormat = this.input.toLowerCase().endsWith(".jsonl") || this.input.toLowerCase().endsWith(".json") ? AnswerReader.JSONL : AnswerReader.CSV;
+        }
+    }
+
+    private static int positive(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException(option + " needs a positive number, got " + value);
+    }
+
+    public ItemAnalysis run() throws Exception {
+        long start = System.nanoTime();
+        CompiledSurvey compiled = Parser.parseSurvey(new File(this.survey)).compile();
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        BufferedReader in = new BufferedReader(this.input.equals("-") ? new InputStreamReader(System.in, Parser.CHARSET) : new InputStreamReader(new FileInputStream(this.input), Parser.CHARSET), BUFFER_SIZE);
+        Writer out = null;
+        try {
+            AnswerReader records = new AnswerReader(in, this.inputFormat, compiled.getQuestionCount());
+            ItemAnalysis analysis = ItemAnalysis.aggregate(compiled, new Sheets(records), pool, this.blockSize);
+            if (records.getError() != null) {
+                throw records.getError();
+            }
+            out = new BufferedWriter(this.output == null || this.output.equals("-") ? new OutputStreamWriter(System.out, Parser.CHARSET) : new OutputStreamWriter(new FileOutputStream(this.output), Parser.CHARSET), BUFFER_SIZE);
+            writeItems(analysis, out);
+            out.flush();
+            writeSummary(analysis, System.err);
+            System.err.printf("Analysed %d records from %s (%d skipped) in %.1f s\n", new Object[]{Long.valueOf(analysis.getRespondentCount()), this.input, Long.valueOf(analysis.getInvalidCount()), Double.valueOf(((double) (System.nanoTime() - start)) / 1.0E9d)});
+            return analysis;
+        } finally {
+            pool.shutdown();
+            in.close();
+            if (out != null && this.output != null && !this.output.equals("-")) {
+                out.close();
+            }
+        }
+    }
+
+    public static void writeItems(ItemAnalysis analysis, Writer out) throws IOException {
+        CompiledSurvey s = analysis.getSurvey();
+        StringBuilder sb = new StringBuilder("question,choice,choice_text,type,selected,selection_rate,weight,proposed_weight,contribution,chooser_mean,discrimination\n");
+        for (int q = 0; q < s.getQuestionCount(); q++) {
+            for (int c = 0; c < s.getChoiceCount(q); c++) {
+                int[] types = analysis.getWeightedTypes(q, c);
+                for (int i = 0; i < types.length; i++) {
+                    int t = types[i];
+                    sb.append(q + 1).append(',').append(c + 1).append(',');
+                    csv(sb, s.getChoice(q, c).getText());
+                    sb.append(',');
+                    csv(sb, s.getTypeName(t));
+                    sb.append(',').append(analysis.getSelectedCount(q, c));
+                    sb.append(',').append(format(analysis.getSelectionRate(q, c)));
+                    sb.append(',').append(format(analysis.getWeight(q, c, t)));
+                    sb.append(',').append(format(analysis.getProposedWeight(q, c, t)));
+                    sb.append(',').append(format(analysis.getContribution(q, c, t)));
+                    sb.append(',').append(format(analysis.getChooserMean(q, c, t)));
+                    sb.append(',').append(format(analysis.getDiscrimination(q, c, t)));
+                    sb.append('\n');
+                }
+                out.append(sb);
+                sb.setLength(0);
+            }
+        }
+    }
+
+    public static void writeSummary(ItemAnalysis analysis, PrintStream out) {
+        int t;
+        CompiledSurvey s = analysis.getSurvey();
+        out.printf("%-20s %10s %10s %8s %10s %10s\n", new Object[]{"Type", "Mean", "Std dev", "Scale", "Fit slope", "Validity"});
+        for (t = 0; t < s.getTypeCount(); t++) {
+            double[] fit = analysis.getWeightFit(t);
+            out.printf("%-20s %10.3f %10.3f %8.3f %10s %10s\n", new Object[]{s.getTypeName(t), Double.valueOf(analysis.getMean(t)), Double.valueOf(analysis.getStdDev(t)), Double.valueOf(analysis.getScale(t)), fit == null ? "-" : format(fit[1]), format(analysis.getWeightValidity(t))});
+        }
+        out.println();
+        out.printf("%-20s", new Object[]{"Correlation"});
+        for (t = 0; t < s.getTypeCount(); t++) {
+            out.printf(" %8.8s", new Object[]{s.getTypeName(t)});
+        }
+        out.println();
+        for (t = 0; t < s.getTypeCount(); t++) {
+            out.printf("%-20s", new Object[]{s.getTypeName(t)});
+            for (int u = 0; u < s.getTypeCount(); u++) {
+                out.printf(" %8.3f", new Object[]{Double.valueOf(analysis.getTypeCorrelation(t, u))});
+            }
+            out.println();
+        }
+    }
+
+    private static String format(double v) {
+        return Double.isNaN(v) ? "" : String.format("%.4f", new Object[]{Double.valueOf(v)});
+    }
+
+    private static void csv(StringBuilder sb, String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,137 @@
+package cli;
+
+import common.CompiledSurvey;
+import common.Survey;
+import common.SurveyStats;
+import io.Parser;
+import io.ResponseLog;
+import io.ResponseLogReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+
+public class ReplayRunner {
+    private static final int BUFFER_SIZE = 65536;
+    private static final String USAGE = "Usage: java cli.ReplayRunner [options] <survey.txt> [responses.log] [stats.json|-]\n\nOptions:\n  --threads N   scoring threads (default: number of processors)\n  --block N     records scored per block (default: 8192)\n\nReplays the sessions recorded for the survey in a response log (default:\n./responses.log) through the scoring engine and writes score distributions,\nresult and choice counts as JSON, in the format of cli.ScoreRunner --stats.\nRecords of other surveys are skipped, as are batches that fail their checksum;\nan unfinished batch at the end of the log is ignored.";
+    private int blockSize;
+    private String log;
+    private String output;
+    private String survey;
+    private int threads;
+
+    public static void main(String[] args) {
+        ReplayRunner runner = new ReplayRunner();
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            System.out.println(USAGE);
+            return;
+        }
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            runner.run();
+        } catch (Exception e2) {
+            System.err.println("Replay failed: " + e2.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public ReplayRunner() {
+        this.log = ResponseLog.DEFAULT_FILE.getPath();
+        this.output = "-";
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.blockSize = 8192;
+    }
+
+    public void parseArgs(String[] args) {
+        int positional = 0;
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i];
+            if (arg.startsWith("--") && arg.length() > 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                i++;
+                String value = args[i];
+                if (arg.equals("--threads")) {
+                    this.threads = positive(arg, value);
+                } else if (arg.equals("--block")) {
+                    this.blockSize = positive(arg, value);
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } else {
+                switch (positional) {
+                    case 0:
+                        this.survey = arg;
+                        break;
+                    case 1:
+                        this.log = arg;
+                        break;
+                    case 2:
+                        this.output = arg;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Too many arguments");
+                }
+                positional++;
+            }
+            i++;
+        }
+        if (positional < 1) {
+            throw new IllegalArgumentException("Missing survey file");
+        }
+    }
+
+    private static int positive(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException(option + " needs a positive number, got " + value);
+    }
+
+    public long run() throws Exception {
+        long start = System.nanoTime();
+        Survey s = Parser.parseSurvey(new File(this.survey));
+        CompiledSurvey compiled = s.compile();
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        ResponseLogReader reader = new ResponseLogReader(new File(this.log));
+        try {
+            SurveyStats stats = SurveyStats.aggregate(compiled, reader.answers(s.getFingerprint()), pool, this.blockSize);
+            Writer out = new BufferedWriter(this.output.equals("-") ? new OutputStreamWriter(System.out, Parser.CHARSET) : new OutputStreamWriter(new FileOutputStream(this.output), Parser.CHARSET), BUFFER_SIZE);
+            try {
+                stats.write(out);
+            } finally {
+                if (this.output.equals("-")) {
+                    out.flush();
+                } else {
+                    out.close();
+                }
+            }
+            double seconds = ((double) (System.nanoTime() - start)) / 1.0E9d;
+            System.err.printf("Replayed %d of %d records from %s in %.1f s (%.0f records/s)\n", new Object[]{Long.valueOf(stats.getCount()), Long.valueOf(reader.getRecordCount()), this.log, Double.valueOf(seconds), Double.valueOf(((double) reader.getRecordCount()) / seconds)});
+            if (reader.getCorruptBatchCount() > 0) {
+                System.err.println("Skipped " + reader.getCorruptBatchCount() + " corrupt batches in " + this.log + ", the first at offset " + reader.getCorruptOffset());
+            }
+            if (reader.isTruncated()) {
+                System.err.println("Ignored an unfinished batch at the end of " + this.log);
+            }
+            return stats.getCount();
+        } finally {
+            pool.shutdown();
+            reader.close();
+        }
+    }
+}
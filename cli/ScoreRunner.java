@@ -0,0 +1,234 @@
+package cli;
+
+import common.BatchScorer;
+import common.CompiledSurvey;
+import common.MatchTrace;
+import common.PopulationSketch;
+import common.Survey;
+import common.SurveyStats;
+import gui.ChartRenderer;
+import io.Parser;
+import io.ReportWriter;
+import io.ReportWriter.Batch;
+import io.SketchStore;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+
+public class ScoreRunner {
+    private static final int BUFFER_SIZE = 65536;
+    private static final String USAGE = "Usage: java cli.ScoreRunner [options] <survey.txt> <answers.csv|answers.jsonl|-> [output|-]\n\nOptions:\n  --format csv|jsonl   input format (default: from the file extension, csv for stdin)\n  --output csv|jsonl   output format (default: same as the input)\n  --threads N          scoring threads (default: number of processors)\n  --block N            records scored per block (default: 8192)\n  --trace FILE         write a JSON Lines match trace to FILE\n  --reports DIR|ZIP    write an HTML report per scored record into DIR or a .zip file\n  --charts WxH         embed pie and bar charts of the given size in each report\n  --stats FILE         write score distributions, result and choice counts as JSON to FILE\n  --sketch FILE        add the scores to the population sketch in FILE (\"survey\" uses the one next to the survey)\n\nAnswers are 1-based choice numbers in the order the survey file lists them.\nCSV rows are id,answer1,...,answerN; JSONL records are {\"id\":...,\"answers\":[...]}.\nAn empty or null answer leaves the question unanswered.";
+    private int blockSize;
+    private int chartHeight;
+    private int chartWidth;
+    private String input;
+    private int inputFormat;
+    private String output;
+    private int outputFormat;
+    private String reports;
+    private String survey;
+    private String sketch;
+    private String stats;
+    private int threads;
+    private String trace;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        ScoreRunner runner = new ScoreRunner();
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            System.out.println(USAGE);
+            return;
+        }
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            System.exit(runner.run() == 0 ? 0 : 1);
+        } catch (Exception e2) {
+            System.err.println("Scoring failed: " + e2.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public ScoreRunner() {
+        this.inputFormat = -1;
+        this.outputFormat = -1;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.blockSize = 8192;
+    }
+
+    public void parseArgs(String[] args) {
+        int positional = 0;
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i];
+            if (arg.startsWith("--") && arg.length() > 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                i++;
+                String value = args[i];
+                if (arg.equals("--format")) {
+                    this.inputFormat = format(value);
+                } else if (arg.equals("--output")) {
+                    this.outputFormat = format(value);
+                } else if (arg.equals("--threads")) {
+                    this.threads = positive(arg, value);
+                } else if (arg.equals("--block")) {
+                    this.blockSize = positive(arg, value);
+                } else if (arg.equals("--trace")) {
+                    this.trace = value;
+                } else if (arg.equals("--sketch")) {
+                    this.sketch = value;
+                } else if (arg.equals("--stats")) {
+                    this.stats = value;
+                } else if (arg.equals("--reports")) {
+                    this.reports = value;
+                } else if (arg.equals("--charts")) {
+                    int x = value.toLowerCase().indexOf('x');
+                    if (x < 0) {
+                        throw new IllegalArgumentException("--charts needs a size like 600x400, got " + value);
+                    }
+                    this.chartWidth = positive(arg, value.substring(0, x));
+                    this.chartHeight = positive(arg, value.substring(x + 1));
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            } else {
+                switch (positional) {
+                    case 0:
+                        this.survey = arg;
+                        break;
+                    case 1:
+                        this.input = arg;
+                        break;
+                    case 2:
+                        this.output = arg;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Too many arguments");
+                }
+                positional++;
+            }
+            i++;
+        }
+        if (positional < 2) {
+            throw new IllegalArgumentException("Missing survey or answer file");
+        }
+        if (this.chartWidth > 0 && this.reports == null) {
+            throw new IllegalArgumentException("--charts needs --reports");
+        }
+        if (this.inputFormat < 0) {
+            this.inputFormat = this.input.toLowerCase().endsWith(".jsonl") || this.input.toLowerCase().endsWith(".json") ? AnswerReader.JSONL : AnswerReader.CSV;
+        }
+        if (this.outputFormat < 0) {
+            this.outputFormat = this.inputFormat;
+        }
+    }
+
+    private static int format(String value) {
+        if (value.equalsIgnoreCase("csv")) {
+            return AnswerReader.CSV;
+        }
+        if (value.equalsIgnoreCase("jsonl")) {
+            return AnswerReader.JSONL;
+        }
+        throw new IllegalArgumentException("Unknown format " + value);
+    }
+
+    private static int positive(String option, String value) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new IllegalArgumentException(option + " needs a positive number, got " + value);
+    }
+
+    public long run() throws Exception {
+        long start = System.nanoTime();
+        Survey s = Parser.parseSurvey(new File(this.survey));
+        CompiledSurvey compiled = s.compile();
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        BufferedReader in = new BufferedReader(this.input.equals("-") ? new InputStreamReader(System.in, Parser.CHARSET) : new InputStreamReader(new FileInputStream(this.input), Parser.CHARSET), BUFFER_SIZE);
+        Writer out = null;
+        Writer traceOut = null;
+        Batch batch = null;
+        try {
+            out = new BufferedWriter(this.output == null || this.output.equals("-") ? new OutputStreamWriter(System.out, Parser.CHARSET) : new OutputStreamWriter(new FileOutputStream(this.output), Parser.CHARSET), BUFFER_SIZE);
+            AnswerReader records = new AnswerReader(in, this.inputFormat, compiled.getQuestionCount());
+            ScoreWriter writer = new ScoreWriter(out, this.outputFormat, compiled, records);
+            BatchScorer scorer = new BatchScorer(compiled, pool, this.blockSize);
+            if (this.trace != null) {
+                traceOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.trace), Parser.CHARSET), BUFFER_SIZE);
+                scorer.setTrace(new MatchTrace(traceOut));
+            }
+            if (this.reports != null) {
+                batch = ReportWriter.getDefault().openBatch(new File(this.reports));
+                writer.setReports(batch, s.getTitle(), s.getWebsite());
+                if (this.chartWidth > 0) {
+                    writer.setCharts(new ChartRenderer(this.chartWidth, this.chartHeight), pool, this.threads * 4);
+                }
+            }
+            SurveyStats summary = null;
+            if (this.stats != null) {
+                summary = new SurveyStats(compiled);
+                writer.setStats(summary);
+            }
+            File sketchFile = null;
+            PopulationSketch population = null;
+            if (this.sketch != null) {
+                sketchFile = this.sketch.equals("survey") ? SketchStore.sketchFile(new File(this.survey)) : new File(this.sketch);
+                population = new PopulationSketch(compiled);
+                writer.setSketch(population);
+            }
+            writer.writeHeader();
+            long count = scorer.scoreAll(records, writer);
+            writer.finish();
+            if (records.getError() != null) {
+                throw records.getError();
+            }
+            out.flush();
+            if (population != null) {
+                SketchStore.merge(sketchFile, compiled, population);
+            }
+            if (summary != null) {
+                Writer statsOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.stats), Parser.CHARSET));
+                try {
+                    summary.write(statsOut);
+                } finally {
+                    statsOut.close();
+                }
+            }
+            System.err.printf("Scored %d records from %s (%d failed) in %.1f s\n", new Object[]{Long.valueOf(count), this.input, Long.valueOf(writer.getErrors()), Double.valueOf(((double) (System.nanoTime() - start)) / 1.0E9d)});
+            return writer.getErrors();
+        } finally {
+            pool.shutdown();
+            in.close();
+            if (out != null) {
+                out.flush();
+                if (this.output != null && !this.output.equals("-")) {
+                    out.close();
+                }
+            }
+            if (traceOut != null) {
+                traceOut.close();
+            }
+            if (batch != null) {
+                batch.close();
+            }
+        }
+    }
+}
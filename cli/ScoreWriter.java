@@ -0,0 +1,269 @@
+package cli;
+
+import cli.AnswerReader.Record;
+import common.BatchScorer.ScoreCard;
+import common.BatchScorer.Sink;
+import common.CompiledSurvey;
+import common.MatchTrace;
+import common.PopulationSketch;
+import common.Result;
+import common.SurveyStats;
+import gui.ChartRenderer;
+import io.ReportWriter.Batch;
+import io.ReportWriter.Report;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+public class ScoreWriter implements Sink {
+    private ChartRenderer charts;
+    private long errors;
+    private ExecutorService executor;
+    private final int format;
+    private final StringBuilder line;
+    private final Writer out;
+    private final ArrayDeque<Future<Void>> pending;
+    private int maxPending;
+    private final AnswerReader records;
+    private PopulationSketch sketch;
+    private SurveyStats stats;
+    private Batch reports;
+    private String reportTitle;
+    private String reportWebsite;
+    private String[] typeNames;
+    private final CompiledSurvey survey;
+    private long written;
+
+    public ScoreWriter(Writer out, int format, CompiledSurvey survey, AnswerReader records) {
+        this.out = out;
+        this.format = format;
+        this.survey = survey;
+        this.records = records;
+        this.line = new StringBuilder(256);
+        this.pending = new ArrayDeque<>();
+    }
+
+    private class ReportTask implements Callable<Void> {
+        private final String file;
+        private final Report report;
+        private final double[] scores;
+
+        ReportTask(String file, Report report, double[] scores) {
+            this.file = file;
+            this.report = report;
+            this.scores = scores;
+        }
+
+        public Void call() throws IOException {
+            if (ScoreWriter.this.charts != null) {
+                ScoreWriter.this.charts.addCharts(this.report, ScoreWriter.this.reportTitle, ScoreWriter.this.typeNames, this.scores);
+            }
+            ScoreWriter.this.reports.write(this.file, this.report);
+            return null;
+        }
+    }
+
+    public void setReports(Batch reports, String title, String website) {
+        this.reports = reports;
+        this.reportTitle = title;
+        this.reportWebsite = website;
+        this.typeNames = new String[this.survey.getTypeCount()];
+        for (int i = 0; i < this.typeNames.length; i++) {
+            this.typeNames[i] = this.survey.getTypeName(i);
+        }
+    }
+
+    public void setStats(SurveyStats stats) {
+        this.stats = stats;
+    }
+
+    public void setSketch(PopulationSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    public void setCharts(ChartRenderer charts, ExecutorService executor, int maxPending) {
+        this.charts = charts;
+        this.executor = executor;
+        this.maxPending = maxPending;
+    }
+
+    public void finish() throws IOException {
+        while (!this.pending.isEmpty()) {
+            await(this.pending.poll());
+        }
+    }
+
+    private static void await(Future<Void> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing reports");
+        } catch (ExecutionException e2) {
+            if (e2.getCause() instanceof IOException) {
+                throw ((IOException) e2.getCause());
+            }
+            throw new IOException("Could not write report", e2.getCause());
+        }
+    }
+
+    public void writeHeader() throws IOException {
+        if (this.format == AnswerReader.CSV) {
+            this.line.setLength(0);
+            this.line.append("id");
+            for (int i = 0; i < this.survey.getTypeCount(); i++) {
+                this.line.append(',');
+                csv(this.survey.getTypeName(i));
+            }
+            this.line.append(",results,error\n");
+            this.out.append(this.line);
+        }
+    }
+
+    public void scored(ScoreCard card) throws IOException {
+        Record record = this.records.poll();
+        String error = record.getError() != null ? record.getError() : card.getError();
+        if (!(error == null && card.isValid())) {
+            this.errors++;
+            if (error == null) {
+                error = "Could not score record";
+            }
+            error = "Line " + record.getLine() + ": " + error;
+        }
+        this.line.setLength(0);
+        if (this.format == AnswerReader.CSV) {
+            writeCsv(record, card, error);
+        } else {
+            writeJson(record, card, error);
+        }
+        this.out.append(this.line);
+        this.written++;
+        if (this.stats != null) {
+            this.stats.add(card);
+        }
+        if (this.sketch != null && error == null) {
+            this.sketch.add(card.getScores());
+        }
+        if (this.reports != null && error == null) {
+            writeReport(record, card);
+        }
+    }
+
+    private void writeReport(Record record, ScoreCard card) throws IOException {
+        List<Result> results = card.getResults();
+        ArrayList<String> texts = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            texts.add(results.get(i).getText());
+        }
+        Report report = new Report(this.reportTitle, this.typeNames, card.getScores(), texts);
+        report.setWebsite(this.reportWebsite);
+        ReportTask task = new ReportTask(this.reports.reserve(record.getId() != null ? record.getId() : "line-" + record.getLine()), report, card.getScores());
+        if (this.executor == null) {
+            task.call();
+            return;
+        }
+        this.pending.add(this.executor.submit(task));
+        while (this.pending.size() > this.maxPending) {
+            await(this.pending.poll());
+        }
+    }
+
+    private void writeCsv(Record record, ScoreCard card, String error) {
+        int i;
+        csv(record.getId());
+        double[] scores = card.getScores();
+        for (i = 0; i < this.survey.getTypeCount(); i++) {
+            this.line.append(',');
+            if (error == null) {
+                this.line.append(scores[i]);
+            }
+        }
+        this.line.append(',');
+        if (error == null) {
+            StringBuilder sb = new StringBuilder();
+            List<Result> results = card.getResults();
+            for (i = 0; i < results.size(); i++) {
+                if (i > 0) {
+                    sb.append(" | ");
+                }
+                sb.append(results.get(i).getText());
+            }
+            csv(sb.toString());
+        }
+        this.line.append(',');
+        csv(error);
+        this.line.append('\n');
+    }
+
+    private void writeJson(Record record, ScoreCard card, String error) {
+        this.line.append("{\"id\":");
+        if (record.getId() == null) {
+            this.line.append("null");
+        } else {
+            MatchTrace.quote(this.line, record.getId());
+        }
+        if (error != null) {
+            this.line.append(",\"error\":");
+            MatchTrace.quote(this.line, error);
+            this.line.append("}\n");
+            return;
+        }
+        int i;
+        this.line.append(",\"scores\":{");
+        double[] scores = card.getScores();
+        for (i = 0; i < scores.length; i++) {
+            if (i > 0) {
+                this.line.append(',');
+            }
+            MatchTrace.quote(this.line, this.survey.getTypeName(i));
+            this.line.append(':').append(scores[i]);
+        }
+        this.line.append("},\"results\":[");
+        List<Result> results = card.getResults();
+        for (i = 0; i < results.size(); i++) {
+            if (i > 0) {
+                this.line.append(',');
+            }
+            MatchTrace.quote(this.line, results.get(i).getText());
+        }
+        this.line.append("]}\n");
+    }
+
+    private void csv(String s) {
+        if (s == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            this.line.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') {
+                    this.line.append('"');
+                }
+                this.line.append(c);
+            }
+            this.line.append('"');
+            return;
+        }
+        this.line.append(s);
+    }
+
+    public long getWritten() {
+        return this.written;
+    }
+
+    public long getErrors() {
+        return this.errors;
+    }
+}
@@ -0,0 +1,155 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class BatchScorer {
+    private static final int DEFAULT_BLOCK_SIZE = 8192;
+    private static final int SPLIT_THRESHOLD = 256;
+    private final int blockSize;
+    private final ForkJoinPool pool;
+    private final CompiledSurvey survey;
+    private volatile MatchTrace trace;
+
+    public interface Sink {
+        void scored(ScoreCard scoreCard) throws Exception;
+    }
+
+    public static class ScoreCard {
+        final int[] answers;
+        String error;
+        List<Result> results;
+        double[] scores;
+        final long sequence;
+
+        ScoreCard(long sequence, int[] answers) {
+            this.sequence = sequence;
+            this.answers = answers;
+        }
+
+        public long getSequence() {
+            return this.sequence;
+        }
+
+        public int[] getAnswers() {
+            return this.answers;
+        }
+
+        public double[] getScores() {
+            return this.scores;
+        }
+
+        public List<Result> getResults() {
+            return this.results;
+        }
+
+        public String getError() {
+            return this.error;
+        }
+
+        public boolean isValid() {
+            return this.error == null;
+        }
+    }
+
+    private class ScoreTask extends RecursiveAction {
+        private final ScoreCard[] cards;
+        private final int from;
+        private final int to;
+
+        ScoreTask(ScoreCard[] cards, int from, int to) {
+            this.cards = cards;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (this.to - this.from <= BatchScorer.SPLIT_THRESHOLD) {
+                for (int i = this.from; i < this.to; i++) {
+                    BatchScorer.this.fill(this.cards[i]);
+                }
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            ForkJoinTask.invokeAll(new ScoreTask(this.cards, this.from, mid), new ScoreTask(this.cards, mid, this.to));
+        }
+    }
+
+    public BatchScorer(CompiledSurvey survey, ForkJoinPool pool) {
+        this(survey, pool, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BatchScorer(CompiledSurvey survey, ForkJoinPool pool, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive!");
+        }
+        this.survey = survey;
+        this.pool = pool;
+        this.blockSize = blockSize;
+    }
+
+    public CompiledSurvey getSurvey() {
+        return this.survey;
+    }
+
+    public void setTrace(MatchTrace trace) {
+        this.trace = trace;
+    }
+
+    public ScoreCard score(int[] answers) {
+        ScoreCard card = new ScoreCard(0, answers);
+        fill(card);
+        return card;
+    }
+
+    public ScoreCard[] scoreAll(List<int[]> sheets) {
+        ScoreCard[] cards = new ScoreCard[sheets.size()];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = new ScoreCard((long) i, sheets.get(i));
+        }
+        this.pool.invoke(new ScoreTask(cards, 0, cards.length));
+        return cards;
+    }
+
+    public long scoreAll(Iterator<int[]> sheets, Sink sink) throws Exception {
+        long count = 0;
+        ScoreCard[] block = nextBlock(sheets, count);
+        while (block.length > 0) {
+            ForkJoinTask<Void> task = this.pool.submit(new ScoreTask(block, 0, block.length));
+            count += (long) block.length;
+            ScoreCard[] next = nextBlock(sheets, count);
+            task.join();
+            MatchTrace trace = this.trace;
+            for (int i = 0; i < block.length; i++) {
+                if (trace != null && block[i].isValid()) {
+                    trace.trace(this.survey, block[i].sequence, block[i].scores);
+                }
+                sink.scored(block[i]);
+            }
+            block = next;
+        }
+        return count;
+    }
+
+    private ScoreCard[] nextBlock(Iterator<int[]> sheets, long sequence) {
+        ArrayList<ScoreCard> cards = new ArrayList<>();
+        while (cards.size() < this.blockSize && sheets.hasNext()) {
+            cards.add(new ScoreCard(((long) cards.size()) + sequence, sheets.next()));
+        }
+        return cards.toArray(new ScoreCard[cards.size()]);
+    }
+
+    private void fill(ScoreCard card) {
+        try {
+            double[] scores = this.survey.score(card.answers);
+            card.results = this.survey.match(scores);
+            card.scores = scores;
+        } catch (RuntimeException e) {
+            card.error = e.getMessage();
+        }
+    }
+}
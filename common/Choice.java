@@ -4,6 +4,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 
 public class Choice {
+    int index;
     String text;
     LinkedList<ValType> values;
 
@@ -40,6 +41,10 @@ public class Choice {
         return sb.toString();
     }
 
+    public int getIndex() {
+        return this.index;
+    }
+
     public String getText() {
         return this.text;
     }
@@ -0,0 +1,204 @@
+package common;
+
+import common.Choice.ValType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+public final class CompiledSurvey {
+    private static final Comparator<Question> QUESTION_ORDER;
+    private static final Comparator<Choice> CHOICE_ORDER;
+    private final int[] choiceStart;
+    private final Choice[] choices;
+    private final ResultMatcher matcher;
+    private final Question[] questions;
+    private final Result[] results;
+    private final String[] typeNames;
+    private final int[] valueStart;
+    private final int[] valueType;
+    private final double[] valueWeight;
+
+    static {
+        QUESTION_ORDER = new Comparator<Question>() {
+            public int compare(Question a, Question b) {
+                return a.index - b.index;
+            }
+        };
+        CHOICE_ORDER = new Comparator<Choice>() {
+            public int compare(Choice a, Choice b) {
+                return a.index - b.index;
+            }
+        };
+    }
+
+    CompiledSurvey(List<Question> questions, List<Result> results, List<Type> types) {
+        int i;
+        ArrayList<Question> qs = new ArrayList<>(questions);
+        Collections.sort(qs, QUESTION_ORDER);
+        ArrayList<Type> ts = new ArrayList<>(types);
+        Collections.sort(ts);
+        ArrayList<Result> rs = new ArrayList<>(results);
+        Collections.sort(rs);
+        this.typeNames = new String[ts.size()];
+        for (i = 0; i < this.typeNames.length; i++) {
+            this.typeNames[i] = ts.get(i).text;
+        }
+        this.results = rs.toArray(new Result[rs.size()]);
+        int nChoices = 0;
+        int nValues = 0;
+        Iterator<Question> it = qs.iterator();
+        while (it.hasNext()) {
+            Question q = it.next();
+            nChoices += q.choices.size();
+            Iterator<Choice> it2 = q.choices.iterator();
+            while (it2.hasNext()) {
+                nValues += it2.next().values.size();
+            }
+        }
+        this.questions = qs.toArray(new Question[qs.size()]);
+        this.choices = new Choice[nChoices];
+        this.choiceStart = new int[(qs.size() + 1)];
+        this.valueStart = new int[(nChoices + 1)];
+        this.valueType = new int[nValues];
+        this.valueWeight = new double[nValues];
+        int c = 0;
+        int v = 0;
+        for (i = 0; i < qs.size(); i++) {
+            this.choiceStart[i] = c;
+            ArrayList<Choice> choices = new ArrayList<>(qs.get(i).choices);
+            Collections.sort(choices, CHOICE_ORDER);
+            Iterator<Choice> it3 = choices.iterator();
+            while (it3.hasNext()) {
+                Choice choice = it3.next();
+                this.choices[c] = choice;
+                this.valueStart[c] = v;
+                Iterator<ValType> it4 = choice.values.iterator();
+                while (it4.hasNext()) {
+                    ValType val = it4.next();
+                    if (val.type < 1 || val.type > this.typeNames.length) {
+                        throw new IllegalArgumentException("Choice \"" + choice.text + "\" refers to unknown type " + val.type);
+                    }
+                    this.valueType[v] = val.type - 1;
+                    this.valueWeight[v] = val.value;
+                    v++;
+                }
+                c++;
+            }
+        }
+        this.choiceStart[qs.size()] = c;
+        this.valueStart[c] = v;
+        this.matcher = new ResultMatcher(this.results, this.typeNames.length);
+    }
+
+    public double[] newScores() {
+        return new double[this.typeNames.length];
+    }
+
+    public void choose(double[] scores, int question, int choice) {
+        add(scores, null, question, choice, 1);
+    }
+
+    public void unchoose(double[] scores, int question, int choice) {
+        add(scores, null, question, choice, -1);
+    }
+
+    void add(double[] scores, int[] terms, int question, int choice, int sign) {
+        int c = choiceIndex(question, choice);
+        int end = this.valueStart[c + 1];
+        for (int v = this.valueStart[c]; v < end; v++) {
+            int i = this.valueType[v];
+            scores[i] = scores[i] + (this.valueWeight[v] * ((double) sign));
+            if (terms != null) {
+                terms[i] = terms[i] + sign;
+                if (terms[i] == 0) {
+                    scores[i] = 0.0d;
+                }
+            }
+        }
+    }
+
+    public double[] score(int[] answers) {
+        double[] scores = newScores();
+        score(answers, scores);
+        return scores;
+    }
+
+    public void score(int[] answers, double[] scores) {
+        if (answers.length != getQuestionCount()) {
+            throw new IllegalArgumentException("Expected " + getQuestionCount() + " answers, got " + answers.length);
+        }
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = 0.0d;
+        }
+        for (int q = 0; q < answers.length; q++) {
+            if (answers[q] >= 0) {
+                add(scores, null, q, answers[q], 1);
+            }
+        }
+    }
+
+    public ArrayList<Result> match(double[] scores) {
+        return this.matcher.match(scores);
+    }
+
+    public ResultMatcher getMatcher() {
+        return this.matcher;
+    }
+
+    private int choiceIndex(int question, int choice) {
+        if (choice < 0 || choice >= getChoiceCount(question)) {
+            throw new IndexOutOfBoundsException("Question " + (question + 1) + " has no choice " + (choice + 1));
+        }
+        return this.choiceStart[question] + choice;
+    }
+
+    int choiceStart(int question) {
+        return this.choiceStart[question];
+    }
+
+    int valueStart(int choice) {
+        return this.valueStart[choice];
+    }
+
+    int valueType(int value) {
+        return this.valueType[value];
+    }
+
+    double valueWeight(int value) {
+        return this.valueWeight[value];
+    }
+
+    public int getQuestionCount() {
+        return this.choiceStart.length - 1;
+    }
+
+    public int getChoiceCount(int question) {
+        return this.choiceStart[question + 1] - this.choiceStart[question];
+    }
+
+    public Question getQuestion(int question) {
+        return this.questions[question];
+    }
+
+    public Choice getChoice(int question, int choice) {
+        return this.choices[choiceIndex(question, choice)];
+    }
+
+    public int getTypeCount() {
+        return this.typeNames.length;
+    }
+
+    public String getTypeName(int type) {
+        return this.typeNames[type];
+    }
+
+    public int getResultCount() {
+        return this.results.length;
+    }
+
+    public Result getResult(int result) {
+        return this.results[result];
+    }
+}
@@ -0,0 +1,416 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import org.jfree.data.statistics.Regression;
+import org.jfree.data.statistics.Statistics;
+
+public final class ItemAnalysis {
+    private static final int SPLIT_THRESHOLD = 1024;
+    private final double[] chooserSum;
+    private final double[] comoment;
+    private final double[] delta;
+    private long invalid;
+    private final double[] m2;
+    private final double[] mean;
+    private long respondents;
+    private final long[] selected;
+    private final double[] scores;
+    private final CompiledSurvey survey;
+    private final int types;
+    private final long[] unanswered;
+    private final Weights weights;
+
+    private static final class Weights {
+        final int[] pairStart;
+        final int[] pairType;
+        final double[] pairWeight;
+        final CompiledSurvey survey;
+
+        Weights(CompiledSurvey survey) {
+            this.survey = survey;
+            int choices = survey.choiceStart(survey.getQuestionCount());
+            int values = survey.valueStart(choices);
+            int[] type = new int[values];
+            double[] weight = new double[values];
+            double[] sum = survey.newScores();
+            int[] seen = new int[sum.length];
+            this.pairStart = new int[(choices + 1)];
+            int p = 0;
+            for (int k = 0; k < choices; k++) {
+                this.pairStart[k] = p;
+                int end = survey.valueStart(k + 1);
+                for (int v = survey.valueStart(k); v < end; v++) {
+                    int t = survey.valueType(v);
+                    if (seen[t] != k + 1) {
+                        seen[t] = k + 1;
+                        sum[t] = 0.0d;
+                        type[p] = t;
+                        p++;
+                    }
+                    sum[t] = sum[t] + survey.valueWeight(v);
+                }
+                Arrays.sort(type, this.pairStart[k], p);
+                for (int i = this.pairStart[k]; i < p; i++) {
+                    weight[i] = sum[type[i]];
+                }
+            }
+            this.pairStart[choices] = p;
+            this.pairType = Arrays.copyOf(type, p);
+            this.pairWeight = Arrays.copyOf(weight, p);
+        }
+
+        int find(int choice, int type) {
+            int p = Arrays.binarySearch(this.pairType, this.pairStart[choice], this.pairStart[choice + 1], type);
+            return p < 0 ? -1 : p;
+        }
+    }
+
+    private static class AnalysisTask extends RecursiveAction {
+        private final int from;
+        private final Map<Thread, ItemAnalysis> partials;
+        private final List<int[]> sheets;
+        private final int to;
+        private final Weights weights;
+
+        AnalysisTask(Weights weights, Map<Thread, ItemAnalysis> partials, List<int[]> sheets, int from, int to) {
+            this.weights = weights;
+            this.partials = partials;
+            this.sheets = sheets;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (this.to - this.from <= SPLIT_THRESHOLD) {
+                ItemAnalysis res = this.partials.get(Thread.currentThread());
+                if (res == null) {
+                    res = new ItemAnalysis(this.weights);
+                    this.partials.put(Thread.currentThread(), res);
+                }
+                for (int i = this.from; i < this.to; i++) {
+                    res.add(this.sheets.get(i));
+                }
+                return;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            invokeAll(new AnalysisTask(this.weights, this.partials, this.sheets, this.from, mid), new AnalysisTask(this.weights, this.partials, this.sheets, mid, this.to));
+        }
+    }
+
+    public ItemAnalysis(CompiledSurvey survey) {
+        this(new Weights(survey));
+    }
+
+    private ItemAnalysis(Weights weights) {
+        this.weights = weights;
+        this.survey = weights.survey;
+        this.types = this.survey.getTypeCount();
+        this.selected = new long[(weights.pairStart.length - 1)];
+        this.chooserSum = new double[weights.pairType.length];
+        this.unanswered = new long[this.survey.getQuestionCount()];
+        this.mean = new double[this.types];
+        this.m2 = new double[this.types];
+        this.delta = new double[this.types];
+        this.comoment = new double[(this.types * this.types)];
+        this.scores = this.survey.newScores();
+    }
+
+    public static ItemAnalysis aggregate(CompiledSurvey survey, Iterator<int[]> sheets, ForkJoinPool pool, int blockSize) {
+        Weights weights = new Weights(survey);
+        ConcurrentHashMap<Thread, ItemAnalysis> partials = new ConcurrentHashMap<>();
+        List<int[]> block = nextBlock(sheets, blockSize);
+        while (!block.isEmpty()) {
+            ForkJoinTask<Void> task = pool.submit(new AnalysisTask(weights, partials, block, 0, block.size()));
+            block = nextBlock(sheets, blockSize);
+            task.join();
+        }
+        ItemAnalysis res = new ItemAnalysis(weights);
+        Iterator<ItemAnalysis> it = partials.values().iterator();
+        while (it.hasNext()) {
+            res.merge(it.next());
+        }
+        return res;
+    }
+
+    private static List<int[]> nextBlock(Iterator<int[]> sheets, int blockSize) {
+        ArrayList<int[]> block = new ArrayList<>();
+        while (block.size() < blockSize && sheets.hasNext()) {
+            block.add(sheets.next());
+        }
+        return block;
+    }
+
+    public boolean add(int[] answers) {
+        try {
+            this.survey.score(answers, this.scores);
+        } catch (IllegalArgumentException e) {
+            this.invalid++;
+            return false;
+        } catch (IndexOutOfBoundsException e2) {
+            this.invalid++;
+            return false;
+        }
+        add(answers, this.scores);
+        return true;
+    }
+
+    public void add(int[] answers, double[] scores) {
+        int t;
+        this.respondents++;
+        double n = (double) this.respondents;
+        for (t = 0; t < this.types; t++) {
+            this.delta[t] = scores[t] - this.mean[t];
+            this.mean[t] += this.delta[t] / n;
+            this.m2[t] += this.delta[t] * (scores[t] - this.mean[t]);
+        }
+        for (t = 0; t < this.types; t++) {
+            int base = this.types * t;
+            for (int s = t + 1; s < this.types; s++) {
+                this.comoment[base + s] += this.delta[t] * (scores[s] - this.mean[s]);
+            }
+        }
+        int[] pairStart = this.weights.pairStart;
+        int[] pairType = this.weights.pairType;
+        for (int q = 0; q < answers.length; q++) {
+            if (answers[q] < 0) {
+                this.unanswered[q]++;
+            } else {
+                int k = this.survey.choiceStart(q) + answers[q];
+                this.selected[k]++;
+                int end = pairStart[k + 1];
+                for (int p = pairStart[k]; p < end; p++) {
+                    this.chooserSum[p] += scores[pairType[p]];
+                }
+            }
+        }
+    }
+
+    public void merge(ItemAnalysis other) {
+        if (other.survey != this.survey) {
+            throw new IllegalArgumentException("Cannot merge analyses of different surveys");
+        }
+        int i;
+        this.invalid += other.invalid;
+        if (other.respondents == 0) {
+            return;
+        }
+        long n = this.respondents + other.respondents;
+        double f = (((double) this.respondents) * ((double) other.respondents)) / ((double) n);
+        for (i = 0; i < this.types; i++) {
+            this.delta[i] = other.mean[i] - this.mean[i];
+            this.m2[i] += other.m2[i] + ((this.delta[i] * this.delta[i]) * f);
+            this.mean[i] += (((double) other.respondents) * this.delta[i]) / ((double) n);
+        }
+        for (i = 0; i < this.types; i++) {
+            int base = this.types * i;
+            for (int s = i + 1; s < this.types; s++) {
+                this.comoment[base + s] += other.comoment[base + s] + ((this.delta[i] * this.delta[s]) * f);
+            }
+        }
+        this.respondents = n;
+        for (i = 0; i < this.selected.length; i++) {
+            this.selected[i] += other.selected[i];
+        }
+        for (i = 0; i < this.chooserSum.length; i++) {
+            this.chooserSum[i] += other.chooserSum[i];
+        }
+        for (i = 0; i < this.unanswered.length; i++) {
+            this.unanswered[i] += other.unanswered[i];
+        }
+    }
+
+    public CompiledSurvey getSurvey() {
+        return this.survey;
+    }
+
+    public long getRespondentCount() {
+        return this.respondents;
+    }
+
+    public long getInvalidCount() {
+        return this.invalid;
+    }
+
+    public long getUnansweredCount(int question) {
+        return this.unanswered[question];
+    }
+
+    public long getSelectedCount(int question, int choice) {
+        return this.selected[index(question, choice)];
+    }
+
+    public double getSelectionRate(int question, int choice) {
+        return this.respondents == 0 ? Double.NaN : ((double) getSelectedCount(question, choice)) / ((double) this.respondents);
+    }
+
+    public int[] getWeightedTypes(int question, int choice) {
+        int k = index(question, choice);
+        return Arrays.copyOfRange(this.weights.pairType, this.weights.pairStart[k], this.weights.pairStart[k + 1]);
+    }
+
+    public double getWeight(int question, int choice, int type) {
+        int p = this.weights.find(index(question, choice), type);
+        return p < 0 ? 0.0d : this.weights.pairWeight[p];
+    }
+
+    public double getMean(int type) {
+        return this.respondents == 0 ? Double.NaN : this.mean[type];
+    }
+
+    public double getStdDev(int type) {
+        if (this.respondents == 0) {
+            return Double.NaN;
+        }
+        return Math.sqrt(Math.max(0.0d, this.m2[type] / ((double) this.respondents)));
+    }
+
+    public double getContribution(int question, int choice, int type) {
+        double total = this.mean[type] * ((double) this.respondents);
+        if (total == 0.0d) {
+            return Double.NaN;
+        }
+        return (((double) getSelectedCount(question, choice)) * getWeight(question, choice, type)) / total;
+    }
+
+    public double getChooserMean(int question, int choice, int type) {
+        int k = index(question, choice);
+        int p = this.weights.find(k, type);
+        if (p < 0 || this.selected[k] == 0) {
+            return Double.NaN;
+        }
+        return this.chooserSum[p] / ((double) this.selected[k]);
+    }
+
+    public double getDiscrimination(int question, int choice, int type) {
+        int k = index(question, choice);
+        int pk = this.weights.find(k, type);
+        if (pk < 0 || this.respondents == 0) {
+            return Double.NaN;
+        }
+        double n = (double) this.respondents;
+        int first = this.survey.choiceStart(question);
+        int count = this.survey.getChoiceCount(question);
+        double mu = 0.0d;
+        double covScore = 0.0d;
+        for (int c = 0; c < count; c++) {
+            int j = first + c;
+            int p = this.weights.find(j, type);
+            if (p >= 0 && this.selected[j] > 0) {
+                double share = ((double) this.selected[j]) / n;
+                double w = this.weights.pairWeight[p];
+                mu += share * w;
+                covScore += (share * w) * ((this.chooserSum[p] / ((double) this.selected[j])) - this.mean[type]);
+            }
+        }
+        double varItem = (((double) this.unanswered[question]) / n) * mu * mu;
+        for (int c2 = 0; c2 < count; c2++) {
+            int j2 = first + c2;
+            if (this.selected[j2] > 0) {
+                int p2 = this.weights.find(j2, type);
+                double d = (p2 < 0 ? 0.0d : this.weights.pairWeight[p2]) - mu;
+                varItem += ((((double) this.selected[j2]) / n) * d) * d;
+            }
+        }
+        double varScore = this.m2[type] / n;
+        double varRest = (varScore - (2.0d * covScore)) + varItem;
+        double chosen = ((double) this.selected[k]) / n;
+        double varChosen = chosen * (1.0d - chosen);
+        if (varChosen <= 0.0d || varRest <= 1.0E-9d * Math.max(1.0d, varScore + varItem)) {
+            return Double.NaN;
+        }
+        double cov = chosen * (((this.chooserSum[pk] / ((double) this.selected[k])) - this.mean[type]) - (this.weights.pairWeight[pk] - mu));
+        return cov / Math.sqrt(varChosen * varRest);
+    }
+
+    public double getTypeCorrelation(int a, int b) {
+        if (a == b) {
+            return 1.0d;
+        }
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        double var = this.m2[lo] * this.m2[hi];
+        if (var <= 0.0d) {
+            return Double.NaN;
+        }
+        return this.comoment[(this.types * lo) + hi] / Math.sqrt(var);
+    }
+
+    private ArrayList<double[]> chosenPairs(int type) {
+        ArrayList<double[]> res = new ArrayList<>();
+        int[] pairStart = this.weights.pairStart;
+        for (int k = 0; k < this.selected.length; k++) {
+            if (this.selected[k] > 0) {
+                for (int p = pairStart[k]; p < pairStart[k + 1]; p++) {
+                    if (this.weights.pairType[p] == type) {
+                        res.add(new double[]{this.weights.pairWeight[p], this.chooserSum[p] / ((double) this.selected[k])});
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    public double[] getWeightFit(int type) {
+        ArrayList<double[]> chosen = chosenPairs(type);
+        double[][] data = chosen.toArray(new double[chosen.size()][]);
+        boolean varies = false;
+        for (int i = 0; i < data.length; i++) {
+            varies |= data[i][0] != data[0][0];
+        }
+        if (data.length < 2 || !varies) {
+            return null;
+        }
+        return Regression.getOLSRegression(data);
+    }
+
+    public double getWeightValidity(int type) {
+        ArrayList<double[]> chosen = chosenPairs(type);
+        if (chosen.size() < 2) {
+            return Double.NaN;
+        }
+        Number[] w = new Number[chosen.size()];
+        Number[] means = new Number[w.length];
+        for (int i = 0; i < w.length; i++) {
+            double[] point = chosen.get(i);
+            w[i] = Double.valueOf(point[0]);
+            means[i] = Double.valueOf(point[1]);
+        }
+        return Statistics.getCorrelation(w, means);
+    }
+
+    public double getScale(int type) {
+        double target = 0.0d;
+        int n = 0;
+        for (int t = 0; t < this.types; t++) {
+            double sd = getStdDev(t);
+            if (sd > 0.0d) {
+                target += sd;
+                n++;
+            }
+        }
+        double sd2 = getStdDev(type);
+        if (n == 0 || !(sd2 > 0.0d)) {
+            return 1.0d;
+        }
+        return (target / ((double) n)) / sd2;
+    }
+
+    public double getProposedWeight(int question, int choice, int type) {
+        return getWeight(question, choice, type) * getScale(type);
+    }
+
+    private int index(int question, int choice) {
+        if (choice >= 0 && choice < this.survey.getChoiceCount(question)) {
+            return this.survey.choiceStart(question) + choice;
+        }
+        throw new IndexOutOfBoundsException("Question " + question + " has no choice " + choice);
+    }
+}
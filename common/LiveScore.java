@@ -0,0 +1,124 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LiveScore {
+    private final int[] answers;
+    private int answered;
+    private final ArrayList<Listener> listeners;
+    private ArrayList<Result> results;
+    private final double[] scores;
+    private final CompiledSurvey survey;
+    private final int[] terms;
+
+    public interface Listener {
+        void scoreChanged(LiveScore liveScore, int question);
+    }
+
+    public LiveScore(CompiledSurvey survey) {
+        this.survey = survey;
+        this.answers = new int[survey.getQuestionCount()];
+        this.scores = survey.newScores();
+        this.terms = new int[survey.getTypeCount()];
+        this.listeners = new ArrayList<>();
+        Arrays.fill(this.answers, -1);
+    }
+
+    public CompiledSurvey getSurvey() {
+        return this.survey;
+    }
+
+    public void addListener(Listener l) {
+        this.listeners.add(l);
+    }
+
+    public void removeListener(Listener l) {
+        this.listeners.remove(l);
+    }
+
+    public boolean answer(int question, int choice) {
+        int previous = this.answers[question];
+        if (previous == choice) {
+            return false;
+        }
+        this.survey.add(this.scores, this.terms, question, choice, 1);
+        if (previous < 0) {
+            this.answered++;
+        } else {
+            this.survey.add(this.scores, this.terms, question, previous, -1);
+        }
+        this.answers[question] = choice;
+        changed(question);
+        return true;
+    }
+
+    public boolean clear(int question) {
+        int previous = this.answers[question];
+        if (previous < 0) {
+            return false;
+        }
+        this.survey.add(this.scores, this.terms, question, previous, -1);
+        this.answers[question] = -1;
+        this.answered--;
+        changed(question);
+        return true;
+    }
+
+    public void reset() {
+        Arrays.fill(this.answers, -1);
+        Arrays.fill(this.scores, 0.0d);
+        Arrays.fill(this.terms, 0);
+        this.answered = 0;
+        changed(-1);
+    }
+
+    private void changed(int question) {
+        this.results = null;
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).scoreChanged(this, question);
+        }
+    }
+
+    public int getAnswer(int question) {
+        return this.answers[question];
+    }
+
+    public int[] getAnswers() {
+        return this.answers.clone();
+    }
+
+    public int getAnsweredCount() {
+        return this.answered;
+    }
+
+    public boolean isComplete() {
+        return this.answered == this.answers.length;
+    }
+
+    public double getScore(int type) {
+        return this.scores[type];
+    }
+
+    public double[] getScores() {
+        return this.scores.clone();
+    }
+
+    public int getLeadingType() {
+        int best = -1;
+        for (int i = 0; i < this.scores.length; i++) {
+            if (best < 0 || this.scores[i] > this.scores[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public List<Result> getResults() {
+        if (this.results == null) {
+            this.results = this.survey.match(this.scores);
+        }
+        return this.results;
+    }
+}
@@ -0,0 +1,142 @@
+package common;
+
+import common.Result.Requirement;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+public class MatchTrace {
+    private final StringBuilder line;
+    private final Writer out;
+    private long sequence;
+
+    public MatchTrace(Writer out) {
+        this.out = out;
+        this.line = new StringBuilder(256);
+    }
+
+    public synchronized void trace(CompiledSurvey survey, double[] scores) throws IOException {
+        long seq = this.sequence;
+        this.sequence = seq + 1;
+        trace(survey, seq, scores);
+    }
+
+    public synchronized void trace(CompiledSurvey survey, long seq, double[] scores) throws IOException {
+        for (int i = 0; i < survey.getResultCount(); i++) {
+            Result r = survey.getResult(i);
+            this.line.setLength(0);
+            this.line.append("{\"seq\":").append(seq);
+            this.line.append(",\"result\":");
+            quote(this.line, r.text);
+            this.line.append(",\"requirements\":[");
+            boolean matched = true;
+            Iterator<Requirement> it = r.reqs.iterator();
+            while (it.hasNext()) {
+                if (!requirement(survey, scores, it.next())) {
+                    matched = false;
+                }
+                if (it.hasNext()) {
+                    this.line.append(',');
+                }
+            }
+            this.line.append("],\"matched\":").append(matched).append("}\n");
+            this.out.append(this.line);
+        }
+        this.out.flush();
+    }
+
+    private boolean requirement(CompiledSurvey survey, double[] scores, Requirement r) {
+        boolean passed;
+        int i;
+        switch (r.type) {
+            case -1:
+                int low = ((int) r.min) - 1;
+                int high = ((int) r.max) - 1;
+                this.line.append("{\"kind\":\"compare\",\"low\":");
+                type(survey, scores, low);
+                this.line.append(",\"high\":");
+                type(survey, scores, high);
+                passed = known(scores, low) && known(scores, high) && scores[low] <= scores[high];
+                break;
+            case 0:
+                int target = r.target - 1;
+                this.line.append("{\"kind\":\"max\",\"target\":");
+                type(survey, scores, target);
+                passed = known(scores, target);
+                for (i = 0; passed && i < scores.length; i++) {
+                    if (i != target && scores[i] > scores[target]) {
+                        passed = false;
+                    }
+                }
+                break;
+            default:
+                int t = r.type - 1;
+                this.line.append("{\"kind\":\"range\",\"type\":");
+                type(survey, scores, t);
+                this.line.append(",\"min\":");
+                number(r.min);
+                this.line.append(",\"max\":");
+                number(r.max);
+                passed = known(scores, t) && scores[t] >= r.min && scores[t] <= r.max;
+                break;
+        }
+        this.line.append(",\"passed\":").append(passed).append('}');
+        return passed;
+    }
+
+    private static boolean known(double[] scores, int type) {
+        return type >= 0 && type < scores.length;
+    }
+
+    private void type(CompiledSurvey survey, double[] scores, int type) {
+        if (known(scores, type)) {
+            this.line.append("{\"name\":");
+            quote(this.line, survey.getTypeName(type));
+            this.line.append(",\"score\":");
+            number(scores[type]);
+            this.line.append('}');
+            return;
+        }
+        this.line.append("null");
+    }
+
+    private void number(double d) {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            this.line.append("null");
+        } else {
+            this.line.append(d);
+        }
+    }
+
+    public static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    if (c < ' ') {
+                        sb.append(String.format("\\u%04x", new Object[]{Integer.valueOf(c)}));
+                        break;
+                    }
+                    sb.append(c);
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,128 @@
+package common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public final class PopulationSketch {
+    public static final int MAGIC = 0x534b5443;
+    public static final int VERSION = 1;
+    private long respondents;
+    private final QuantileSketch[] sketches;
+    private final String[] typeNames;
+
+    public PopulationSketch(CompiledSurvey survey) {
+        this.typeNames = new String[survey.getTypeCount()];
+        this.sketches = new QuantileSketch[this.typeNames.length];
+        for (int i = 0; i < this.typeNames.length; i++) {
+            this.typeNames[i] = survey.getTypeName(i);
+            this.sketches[i] = new QuantileSketch();
+        }
+    }
+
+    public synchronized void add(double[] scores) {
+        if (scores.length != this.sketches.length) {
+            throw new IllegalArgumentException("Expected " + this.sketches.length + " scores, got " + scores.length);
+        }
+        for (int i = 0; i < scores.length; i++) {
+            this.sketches[i].add(scores[i]);
+        }
+        this.respondents++;
+    }
+
+    public void merge(PopulationSketch other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a sketch into itself");
+        }
+        QuantileSketch[] copies = new QuantileSketch[other.sketches.length];
+        long count;
+        synchronized (other) {
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = other.sketches[i].copy();
+            }
+            count = other.respondents;
+        }
+        synchronized (this) {
+            for (int i = 0; i < copies.length; i++) {
+                int t = indexOf(other.typeNames[i]);
+                if (t >= 0) {
+                    this.sketches[t].merge(copies[i]);
+                }
+            }
+            this.respondents += count;
+        }
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < this.typeNames.length; i++) {
+            if (this.typeNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public synchronized long getRespondentCount() {
+        return this.respondents;
+    }
+
+    public String getTypeName(int type) {
+        return this.typeNames[type];
+    }
+
+    public synchronized double getRank(int type, double score) {
+        QuantileSketch s = this.sketches[type];
+        if (s.getTotalWeight() == 0.0d) {
+            return Double.NaN;
+        }
+        return s.cdf(score) * 100.0d;
+    }
+
+    public synchronized double[] getRanks(double[] scores) {
+        double[] res = new double[scores.length];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = getRank(i, scores[i]);
+        }
+        return res;
+    }
+
+    public synchronized double getQuantile(int type, double q) {
+        return this.sketches[type].quantile(q);
+    }
+
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(this.respondents);
+        out.writeInt(this.typeNames.length);
+        for (int i = 0; i < this.typeNames.length; i++) {
+            out.writeUTF(this.typeNames[i]);
+            this.sketches[i].write(out);
+        }
+    }
+
+    public static PopulationSketch read(DataInput in, CompiledSurvey survey) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a population sketch");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported sketch version " + version);
+        }
+        PopulationSketch res = new PopulationSketch(survey);
+        res.respondents = in.readLong();
+        int types = in.readInt();
+        if (types < 0 || res.respondents < 0) {
+            throw new IOException("Corrupt population sketch");
+        }
+        for (int i = 0; i < types; i++) {
+            String name = in.readUTF();
+            QuantileSketch s = QuantileSketch.read(in);
+            int t = res.indexOf(name);
+            if (t >= 0) {
+                res.sketches[t] = s;
+            }
+        }
+        return res;
+    }
+}
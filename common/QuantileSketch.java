@@ -0,0 +1,304 @@
+package common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public final class QuantileSketch {
+    public static final int DEFAULT_COMPRESSION = 100;
+    private final double[] bufferMean;
+    private final double[] bufferWeight;
+    private int buffered;
+    private double[] centers;
+    private final int compression;
+    private int count;
+    private double max;
+    private double[] mean;
+    private double min;
+    private double total;
+    private double[] weight;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public QuantileSketch(int compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compression must be at least 10, got " + compression);
+        }
+        this.compression = compression;
+        this.mean = new double[0];
+        this.weight = new double[0];
+        this.centers = new double[0];
+        this.bufferMean = new double[compression * 5];
+        this.bufferWeight = new double[compression * 5];
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+    }
+
+    public void add(double value) {
+        add(value, 1.0d);
+    }
+
+    public void add(double value, double w) {
+        if (Double.isNaN(value) || w <= 0.0d) {
+            throw new IllegalArgumentException("Cannot add " + value + " with weight " + w);
+        }
+        if (this.buffered == this.bufferMean.length) {
+            compress();
+        }
+        this.bufferMean[this.buffered] = value;
+        this.bufferWeight[this.buffered] = w;
+        this.buffered++;
+        this.total += w;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    public void merge(QuantileSketch other) {
+        other.compress();
+        for (int i = 0; i < other.count; i++) {
+            add(other.mean[i], other.weight[i]);
+        }
+        if (other.count > 0) {
+            this.min = Math.min(this.min, other.min);
+            this.max = Math.max(this.max, other.max);
+        }
+    }
+
+    QuantileSketch copy() {
+        QuantileSketch res = new QuantileSketch(this.compression);
+        res.merge(this);
+        return res;
+    }
+
+    private void compress() {
+        if (this.buffered != 0) {
+            int i;
+            int n = this.count + this.buffered;
+            double[] m = new double[n];
+            double[] w = new double[n];
+            System.arraycopy(this.mean, 0, m, 0, this.count);
+            System.arraycopy(this.weight, 0, w, 0, this.count);
+            System.arraycopy(this.bufferMean, 0, m, this.count, this.buffered);
+            System.arraycopy(this.bufferWeight, 0, w, this.count, this.buffered);
+            sort(m, w, n);
+            double[] outMean = new double[n];
+            double[] outWeight = new double[n];
+            int out = 0;
+            double before = 0.0d;
+            double limit = this.total * q(k(0.0d) + 1.0d);
+            outMean[0] = m[0];
+            outWeight[0] = w[0];
+            for (i = 1; i < n; i++) {
+                if ((outWeight[out] + before) + w[i] <= limit) {
+                    outWeight[out] += w[i];
+                    outMean[out] += ((m[i] - outMean[out]) * w[i]) / outWeight[out];
+                } else {
+                    before += outWeight[out];
+                    limit = this.total * q(k(before / this.total) + 1.0d);
+                    out++;
+                    outMean[out] = m[i];
+                    outWeight[out] = w[i];
+                }
+            }
+            this.count = out + 1;
+            this.mean = new double[this.count];
+            this.weight = new double[this.count];
+            this.centers = new double[this.count];
+            System.arraycopy(outMean, 0, this.mean, 0, this.count);
+            System.arraycopy(outWeight, 0, this.weight, 0, this.count);
+            double seen = 0.0d;
+            for (i = 0; i < this.count; i++) {
+                this.centers[i] = (this.weight[i] / 2.0d) + seen;
+                seen += this.weight[i];
+            }
+            this.buffered = 0;
+        }
+    }
+
+    private double k(double q) {
+        return (((double) this.compression) / 6.283185307179586d) * Math.asin((2.0d * q) - 1.0d);
+    }
+
+    private double q(double k) {
+        if (k >= ((double) this.compression) / 4.0d) {
+            return 1.0d;
+        }
+        return (Math.sin((6.283185307179586d * k) / ((double) this.compression)) + 1.0d) / 2.0d;
+    }
+
+    private static void sort(double[] m, double[] w, int n) {
+        for (int i = 1; i < n; i++) {
+            if (m[i] < m[i - 1]) {
+                quicksort(m, w, 0, n - 1);
+                return;
+            }
+        }
+    }
+
+    private static void quicksort(double[] m, double[] w, int lo, int hi) {
+        while (hi - lo > 16) {
+            double pivot = m[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (m[i] < pivot) {
+                    i++;
+                }
+                while (m[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(m, w, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (j - lo < hi - i) {
+                quicksort(m, w, lo, j);
+                lo = i;
+            } else {
+                quicksort(m, w, i, hi);
+                hi = j;
+            }
+        }
+        for (int i2 = lo + 1; i2 <= hi; i2++) {
+            for (int j2 = i2; j2 > lo && m[j2] < m[j2 - 1]; j2--) {
+                swap(m, w, j2, j2 - 1);
+            }
+        }
+    }
+
+    private static void swap(double[] m, double[] w, int i, int j) {
+        double t = m[i];
+        m[i] = m[j];
+        m[j] = t;
+        t = w[i];
+        w[i] = w[j];
+        w[j] = t;
+    }
+
+    public double getTotalWeight() {
+        return this.total;
+    }
+
+    public int getCentroidCount() {
+        compress();
+        return this.count;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
+    public double cdf(double x) {
+        compress();
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        if (x < this.min) {
+            return 0.0d;
+        }
+        if (x > this.max) {
+            return 1.0d;
+        }
+        if (this.count == 1) {
+            return this.max == this.min ? 0.5d : (x - this.min) / (this.max - this.min);
+        }
+        int lo = 0;
+        int hi = this.count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.mean[mid] <= x) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int right = lo;
+        int left = right - 1;
+        if (left >= 0 && this.mean[left] == x) {
+            int first = left;
+            while (first > 0 && this.mean[first - 1] == x) {
+                first--;
+            }
+            return ((this.centers[first] - (this.weight[first] / 2.0d)) + (this.centers[left] + (this.weight[left] / 2.0d))) / (2.0d * this.total);
+        }
+        if (left < 0) {
+            return interpolate(x, this.min, 0.0d, this.mean[0], this.centers[0]);
+        }
+        if (right == this.count) {
+            return interpolate(x, this.mean[left], this.centers[left], this.max, this.total);
+        }
+        return interpolate(x, this.mean[left], this.centers[left], this.mean[right], this.centers[right]);
+    }
+
+    private double interpolate(double x, double x0, double c0, double x1, double c1) {
+        if (x1 <= x0) {
+            return c1 / this.total;
+        }
+        return ((((x - x0) / (x1 - x0)) * (c1 - c0)) + c0) / this.total;
+    }
+
+    public double quantile(double q) {
+        if (q < 0.0d || q > 1.0d) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1, got " + q);
+        }
+        compress();
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        double rank = this.total * q;
+        if (rank <= this.centers[0]) {
+            return this.min + (((this.mean[0] - this.min) * rank) / this.centers[0]);
+        }
+        for (int i = 1; i < this.count; i++) {
+            if (rank <= this.centers[i]) {
+                return this.mean[i - 1] + (((this.mean[i] - this.mean[i - 1]) * (rank - this.centers[i - 1])) / (this.centers[i] - this.centers[i - 1]));
+            }
+        }
+        double c = this.centers[this.count - 1];
+        return this.total > c ? this.mean[this.count - 1] + (((this.max - this.mean[this.count - 1]) * (rank - c)) / (this.total - c)) : this.max;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        compress();
+        out.writeInt(this.compression);
+        out.writeInt(this.count);
+        out.writeDouble(this.min);
+        out.writeDouble(this.max);
+        for (int i = 0; i < this.count; i++) {
+            out.writeDouble(this.mean[i]);
+            out.writeDouble(this.weight[i]);
+        }
+    }
+
+    public static QuantileSketch read(DataInput in) throws IOException {
+        int compression = in.readInt();
+        int n = in.readInt();
+        if (compression < 10 || n < 0 || n > compression * 10) {
+            throw new IOException("Corrupt quantile sketch");
+        }
+        QuantileSketch res = new QuantileSketch(compression);
+        double min = in.readDouble();
+        double max = in.readDouble();
+        for (int i = 0; i < n; i++) {
+            double m = in.readDouble();
+            double w = in.readDouble();
+            if (Double.isNaN(m) || w <= 0.0d || Double.isNaN(w)) {
+                throw new IOException("Corrupt quantile sketch");
+            }
+            res.add(m, w);
+        }
+        if (n > 0) {
+            res.min = min;
+            res.max = max;
+        }
+        return res;
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Iterator;
 
 public class Question {
     ArrayList<Choice> choices;
+    int index;
     String text;
 
     public Question(String text) {
@@ -31,6 +32,10 @@ public class Question {
         Collections.shuffle(this.choices);
     }
 
+    public int getIndex() {
+        return this.index;
+    }
+
     public String getText() {
         return this.text;
     }
@@ -65,59 +65,43 @@ public class Result implements Comparable<Result> {
     }
 
     public boolean check(ArrayList<Type> scores) {
-        logger.log(Level.INFO, "Checking " + this.text + ": ");
+        boolean log = logger.isLoggable(Level.INFO);
+        if (log) {
+            logger.log(Level.INFO, "Checking " + this.text + ": ");
+        }
         Iterator it = this.reqs.iterator();
         while (it.hasNext()) {
             Requirement r = (Requirement) it.next();
-            Logger logger;
-            Level level;
-            Object[] objArr;
-            double points;
+            Type t;
             switch (r.type) {
                 case LineBreakIterator.DONE /*-1*/:
-                    if (((Type) scores.get(((int) r.min) - 1)).points <= ((Type) scores.get(((int) r.max) - 1)).points) {
-                        logger = logger;
-                        level = Level.INFO;
-                        objArr = new Object[4];
-                        ArrayList<Type> arrayList = scores;
-                        objArr[0] = ((Type) arrayList.get(((int) r.min) - 1)).text;
-                        arrayList = scores;
-                        objArr[1] = Double.valueOf(((Type) arrayList.get(((int) r.min) - 1)).points);
-                        arrayList = scores;
-                        objArr[2] = ((Type) arrayList.get(((int) r.max) - 1)).text;
-                        arrayList = scores;
-                        objArr[3] = Double.valueOf(((Type) arrayList.get(((int) r.max) - 1)).points);
-                        logger.log(level, String.format("%s:%f < %s:%f", objArr));
+                    t = scores.get(((int) r.min) - 1);
+                    Type other = scores.get(((int) r.max) - 1);
+                    if (t.points <= other.points) {
+                        if (log) {
+                            logger.log(Level.INFO, String.format("%s:%f < %s:%f", new Object[]{t.text, Double.valueOf(t.points), other.text, Double.valueOf(other.points)}));
+                        }
                         break;
                     }
                     return false;
                 case LogTarget.ERROR /*0*/:
-                    points = ((Type) scores.get(r.target - 1)).points;
-                    Iterator it2 = scores.iterator();
-                    while (it2.hasNext()) {
-                        Type s = (Type) it2.next();
-                        if (s.index != r.target && s.points > points) {
+                    t = scores.get(r.target - 1);
+                    for (int i = 0; i < scores.size(); i++) {
+                        Type s = scores.get(i);
+                        if (s.index != r.target && s.points > t.points) {
                             return false;
                         }
                     }
-                    logger = logger;
-                    level = Level.INFO;
-                    objArr = new Object[2];
-                    objArr[0] = ((Type) scores.get(r.target - 1)).text;
-                    objArr[1] = Double.valueOf(((Type) scores.get(r.target - 1)).points);
-                    logger.log(level, String.format("%s:%f is max", objArr));
+                    if (log) {
+                        logger.log(Level.INFO, String.format("%s:%f is max", new Object[]{t.text, Double.valueOf(t.points)}));
+                    }
                     break;
                 default:
-                    points = ((Type) scores.get(r.type - 1)).points;
-                    if (points >= r.min && points <= r.max) {
-                        logger = logger;
-                        level = Level.INFO;
-                        objArr = new Object[4];
-                        objArr[0] = Double.valueOf(r.min);
-                        objArr[1] = ((Type) scores.get(r.type - 1)).text;
-                        objArr[2] = Double.valueOf(((Type) scores.get(r.type - 1)).points);
-                        objArr[3] = Double.valueOf(r.max);
-                        logger.log(level, String.format("%f < %s:%f < %f", objArr));
+                    t = scores.get(r.type - 1);
+                    if (t.points >= r.min && t.points <= r.max) {
+                        if (log) {
+                            logger.log(Level.INFO, String.format("%f < %s:%f < %f", new Object[]{Double.valueOf(r.min), t.text, Double.valueOf(t.points), Double.valueOf(r.max)}));
+                        }
                         break;
                     }
                     return false;
@@ -126,6 +110,34 @@ public class Result implements Comparable<Result> {
         return true;
     }
 
+    public boolean check(double[] scores) {
+        Iterator<Requirement> it = this.reqs.iterator();
+        while (it.hasNext()) {
+            Requirement r = it.next();
+            switch (r.type) {
+                case LineBreakIterator.DONE /*-1*/:
+                    if (scores[((int) r.min) - 1] > scores[((int) r.max) - 1]) {
+                        return false;
+                    }
+                    break;
+                case LogTarget.ERROR /*0*/:
+                    double points = scores[r.target - 1];
+                    for (int i = 0; i < scores.length; i++) {
+                        if (i != r.target - 1 && scores[i] > points) {
+                            return false;
+                        }
+                    }
+                    break;
+                default:
+                    if (scores[r.type - 1] < r.min || scores[r.type - 1] > r.max) {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
     public int compareTo(Result o) {
         if (this.reqs.size() != o.reqs.size()) {
             return this.reqs.size() - o.reqs.size();
@@ -0,0 +1,257 @@
+package common;
+
+import common.Result.Requirement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class ResultMatcher {
+    private static final int[] NONE;
+    private static Logger logger;
+    private final int[] always;
+    private final int[] compareHigh;
+    private final int[] compareLow;
+    private final int[] compareOwner;
+    private final IntervalIndex[] ranges;
+    private final int[] required;
+    private final Result[] results;
+    private final ThreadLocal<Scratch> scratch;
+    private final int[][] targets;
+    private final int typeCount;
+
+    public static final class Scratch {
+        private int count;
+        private final int[] hits;
+        private final int[] matched;
+        private final int[] touched;
+        private int touchedCount;
+
+        Scratch(int results) {
+            this.hits = new int[results];
+            this.touched = new int[results];
+            this.matched = new int[results];
+        }
+
+        public int getCount() {
+            return this.count;
+        }
+
+        public int get(int i) {
+            return this.matched[i];
+        }
+
+        void hit(int result) {
+            if (this.hits[result] == 0) {
+                this.touched[this.touchedCount++] = result;
+            }
+            this.hits[result]++;
+        }
+    }
+
+    static final class IntervalIndex {
+        private final double[] hi;
+        private final double[] lo;
+        private final double[] maxHi;
+        private final int[] owner;
+
+        IntervalIndex(ArrayList<double[]> intervals) {
+            Object[] sorted = intervals.toArray();
+            Arrays.sort(sorted, new Comparator<Object>() {
+                public int compare(Object a, Object b) {
+                    return Double.compare(((double[]) a)[0], ((double[]) b)[0]);
+                }
+            });
+            int n = sorted.length;
+            this.lo = new double[n];
+            this.hi = new double[n];
+            this.maxHi = new double[n];
+            this.owner = new int[n];
+            for (int i = 0; i < n; i++) {
+                double[] interval = (double[]) sorted[i];
+                this.lo[i] = interval[0];
+                this.hi[i] = interval[1];
+                this.owner[i] = (int) interval[2];
+            }
+            build(0, n);
+        }
+
+        private double build(int from, int to) {
+            if (from >= to) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            int mid = (from + to) >>> 1;
+            double max = Math.max(this.hi[mid], Math.max(build(from, mid), build(mid + 1, to)));
+            this.maxHi[mid] = max;
+            return max;
+        }
+
+        void stab(double x, int from, int to, Scratch s) {
+            while (from < to) {
+                int mid = (from + to) >>> 1;
+                if (this.maxHi[mid] < x) {
+                    return;
+                }
+                stab(x, from, mid, s);
+                if (this.lo[mid] > x) {
+                    return;
+                }
+                if (this.hi[mid] >= x) {
+                    s.hit(this.owner[mid]);
+                }
+                from = mid + 1;
+            }
+        }
+
+        int size() {
+            return this.lo.length;
+        }
+    }
+
+    static {
+        logger = Logger.getLogger(ResultMatcher.class.getName());
+        NONE = new int[0];
+    }
+
+    ResultMatcher(Result[] results, int typeCount) {
+        int i;
+        this.results = results;
+        this.typeCount = typeCount;
+        this.required = new int[results.length];
+        ArrayList<Integer> always = new ArrayList<>();
+        ArrayList<int[]> compares = new ArrayList<>();
+        ArrayList<ArrayList<Integer>> targetLists = new ArrayList<>(typeCount);
+        ArrayList<ArrayList<double[]>> rangeLists = new ArrayList<>(typeCount);
+        for (i = 0; i < typeCount; i++) {
+            targetLists.add(new ArrayList<Integer>());
+            rangeLists.add(new ArrayList<double[]>());
+        }
+        for (i = 0; i < results.length; i++) {
+            this.required[i] = results[i].reqs.size();
+            if (this.required[i] == 0) {
+                always.add(Integer.valueOf(i));
+            }
+            Iterator<Requirement> it = results[i].reqs.iterator();
+            while (it.hasNext()) {
+                Requirement r = it.next();
+                if (r.type == -1) {
+                    int low = ((int) r.min) - 1;
+                    int high = ((int) r.max) - 1;
+                    if (valid(low) && valid(high)) {
+                        compares.add(new int[]{i, low, high});
+                    } else {
+                        unknownType(results[i]);
+                    }
+                } else if (r.type == 0) {
+                    if (valid(r.target - 1)) {
+                        targetLists.get(r.target - 1).add(Integer.valueOf(i));
+                    } else {
+                        unknownType(results[i]);
+                    }
+                } else if (!valid(r.type - 1)) {
+                    unknownType(results[i]);
+                } else if (r.min <= r.max) {
+                    rangeLists.get(r.type - 1).add(new double[]{r.min, r.max, (double) i});
+                }
+            }
+        }
+        this.always = toArray(always);
+        this.compareOwner = new int[compares.size()];
+        this.compareLow = new int[compares.size()];
+        this.compareHigh = new int[compares.size()];
+        for (i = 0; i < compares.size(); i++) {
+            int[] c = compares.get(i);
+            this.compareOwner[i] = c[0];
+            this.compareLow[i] = c[1];
+            this.compareHigh[i] = c[2];
+        }
+        this.targets = new int[typeCount][];
+        this.ranges = new IntervalIndex[typeCount];
+        for (i = 0; i < typeCount; i++) {
+            this.targets[i] = targetLists.get(i).isEmpty() ? NONE : toArray(targetLists.get(i));
+            this.ranges[i] = rangeLists.get(i).isEmpty() ? null : new IntervalIndex(rangeLists.get(i));
+        }
+        this.scratch = new ThreadLocal<Scratch>() {
+            protected Scratch initialValue() {
+                return ResultMatcher.this.newScratch();
+            }
+        };
+    }
+
+    private boolean valid(int type) {
+        return type >= 0 && type < this.typeCount;
+    }
+
+    private static void unknownType(Result r) {
+        logger.log(Level.WARNING, "Result \"" + r.text + "\" refers to an unknown type and can never match");
+    }
+
+    private static int[] toArray(ArrayList<Integer> list) {
+        int[] res = new int[list.size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = list.get(i).intValue();
+        }
+        return res;
+    }
+
+    public Scratch newScratch() {
+        return new Scratch(this.results.length);
+    }
+
+    public ArrayList<Result> match(double[] scores) {
+        Scratch s = this.scratch.get();
+        int n = match(scores, s);
+        ArrayList<Result> res = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            res.add(this.results[s.matched[i]]);
+        }
+        return res;
+    }
+
+    public int match(double[] scores, Scratch s) {
+        int i;
+        if (scores.length != this.typeCount) {
+            throw new IllegalArgumentException("Expected " + this.typeCount + " scores, got " + scores.length);
+        }
+        s.touchedCount = 0;
+        double max = Double.NEGATIVE_INFINITY;
+        for (i = 0; i < scores.length; i++) {
+            if (scores[i] > max) {
+                max = scores[i];
+            }
+        }
+        for (i = 0; i < scores.length; i++) {
+            if (scores[i] >= max) {
+                int[] owners = this.targets[i];
+                for (int j = 0; j < owners.length; j++) {
+                    s.hit(owners[j]);
+                }
+            }
+            IntervalIndex index = this.ranges[i];
+            if (index != null) {
+                index.stab(scores[i], 0, index.size(), s);
+            }
+        }
+        for (i = 0; i < this.compareOwner.length; i++) {
+            if (scores[this.compareLow[i]] <= scores[this.compareHigh[i]]) {
+                s.hit(this.compareOwner[i]);
+            }
+        }
+        int n = 0;
+        for (i = 0; i < s.touchedCount; i++) {
+            int r = s.touched[i];
+            if (s.hits[r] == this.required[r]) {
+                s.matched[n++] = r;
+            }
+            s.hits[r] = 0;
+        }
+        for (i = 0; i < this.always.length; i++) {
+            s.matched[n++] = this.always[i];
+        }
+        Arrays.sort(s.matched, 0, n);
+        s.count = n;
+        return n;
+    }
+}
@@ -1,6 +1,11 @@
 package common;
 
+import common.Choice.ValType;
 import common.Result.Requirement;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -13,13 +18,18 @@ public class Survey {
     private static final Pattern LINE_DELIM;
     private static final Pattern TOKEN_DELIM;
     private static Logger logger;
+    private volatile CompiledSurvey compiled;
+    private int fingerprint;
+    private boolean fingerprinted;
     private int index;
     private boolean initialized;
-    private String name;
-    private ArrayList<Question> questions;
-    private ArrayList<Result> results;
-    private ArrayList<Type> types;
-    private String website;
+    private File source;
+    private MatchTrace trace;
+    String name;
+    ArrayList<Question> questions;
+    ArrayList<Result> results;
+    ArrayList<Type> types;
+    String website;
 
     static {
         logger = Logger.getLogger(Survey.class.getName());
@@ -27,7 +37,7 @@ public class Survey {
         LINE_DELIM = Pattern.compile("(?:(?:\\s*\\n)|(?:#[^\\n]*\\n)){1,}");
     }
 
-    private Survey() {
+    Survey() {
         this.questions = new ArrayList();
         this.results = new ArrayList();
         this.types = new ArrayList();
@@ -35,11 +45,11 @@ public class Survey {
         this.initialized = false;
     }
 
-    private void initialize() {
+    private synchronized void initialize() {
         if (!this.initialized) {
-            shuffle();
             Collections.sort(this.types);
             Collections.sort(this.results);
+            this.initialized = true;
         }
     }
 
@@ -52,6 +62,36 @@ public class Survey {
         }
     }
 
+    public SurveySession newSession() {
+        return new SurveySession(this);
+    }
+
+    public SurveySession newSession(long seed) {
+        return new SurveySession(this, seed);
+    }
+
+    public synchronized int getFingerprint() {
+        if (!this.fingerprinted) {
+            this.fingerprint = SurveyCodec.fingerprint(this);
+            this.fingerprinted = true;
+        }
+        return this.fingerprint;
+    }
+
+    public CompiledSurvey compile() {
+        CompiledSurvey res = this.compiled;
+        if (res == null) {
+            synchronized (this) {
+                res = this.compiled;
+                if (res == null) {
+                    res = new CompiledSurvey(this.questions, this.results, this.types);
+                    this.compiled = res;
+                }
+            }
+        }
+        return res;
+    }
+
     public Question getNextQuestion() {
         if (this.index + 1 >= this.questions.size()) {
             return null;
@@ -116,6 +156,23 @@ public class Survey {
     }
 
     public static Survey parse(String str) {
+        try {
+            return new SurveyReader(CharBuffer.wrap(str.toCharArray())).read();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, e.getMessage());
+            return null;
+        }
+    }
+
+    public static Survey parse(Reader in) throws IOException {
+        return new SurveyReader(in).read();
+    }
+
+    public static Survey parse(CharBuffer in) throws IOException {
+        return new SurveyReader(in).read();
+    }
+
+    public static Survey parseWithScanner(String str) {
         try {
             int i;
             Survey res = new Survey();
@@ -130,6 +187,7 @@ public class Survey {
                 in.useDelimiter(LINE_DELIM);
                 token = in.next();
                 Question cur = new Question(token);
+                cur.index = i;
                 in.useDelimiter(TOKEN_DELIM);
                 int nChoices = in.nextInt();
                 for (int j = 0; j < nChoices; j++) {
@@ -137,6 +195,7 @@ public class Survey {
                     in.useDelimiter(LINE_DELIM);
                     token = in.next();
                     Choice curChoice = new Choice(token);
+                    curChoice.index = j;
                     in.useDelimiter(TOKEN_DELIM);
                     while (in.hasNextInt()) {
                         token = in.next();
@@ -213,20 +272,28 @@ public class Survey {
 
     public ArrayList<Result> getResults() {
         initialize();
-        ArrayList<Result> res = new ArrayList();
-        Iterator it = this.types.iterator();
-        while (it.hasNext()) {
-            Type t = (Type) it.next();
-            logger.log(Level.INFO, t.text + ": " + t.points);
+        boolean log = logger.isLoggable(Level.INFO);
+        double[] scores = new double[this.types.size()];
+        for (int i = 0; i < scores.length; i++) {
+            Type t = this.types.get(i);
+            if (log) {
+                logger.log(Level.INFO, t.text + ": " + t.points);
+            }
+            scores[i] = t.points;
         }
-        it = this.results.iterator();
-        while (it.hasNext()) {
-            Result r = (Result) it.next();
-            if (r.check(this.types)) {
-                res.add(r);
+        CompiledSurvey c = compile();
+        if (this.trace != null) {
+            try {
+                this.trace.trace(c, scores);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not write match trace", e);
             }
         }
-        return res;
+        return c.match(scores);
+    }
+
+    public void setTrace(MatchTrace trace) {
+        this.trace = trace;
     }
 
     public ArrayList<Type> getTypes() {
@@ -236,4 +303,12 @@ public class Survey {
     public String getWebsite() {
         return this.website;
     }
+
+    public File getSource() {
+        return this.source;
+    }
+
+    public void setSource(File source) {
+        this.source = source;
+    }
 }
@@ -0,0 +1,327 @@
+package common;
+
+import common.Choice.ValType;
+import common.Result.Requirement;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+public class SurveyCodec {
+    private static final int HEADER_SIZE = 64;
+    public static final int MAGIC = 0x57415952;
+    private static final Charset UTF8;
+    public static final int VERSION = 1;
+
+    public static class Header {
+        int choices;
+        int checksum;
+        int questions;
+        int requirements;
+        int results;
+        long sourceLength;
+        long sourceModified;
+        int stringBytes;
+        int types;
+        int values;
+
+        public long getSourceLength() {
+            return this.sourceLength;
+        }
+
+        public long getSourceModified() {
+            return this.sourceModified;
+        }
+    }
+
+    static {
+        UTF8 = Charset.forName("UTF-8");
+    }
+
+    public static ByteBuffer encode(Survey survey, long sourceLength, long sourceModified) {
+        int i;
+        Header h = new Header();
+        h.sourceLength = sourceLength;
+        h.sourceModified = sourceModified;
+        ArrayList<String> strings = new ArrayList<>();
+        strings.add(survey.name);
+        strings.add(survey.website);
+        ArrayList<Question> questions = new ArrayList<>(survey.questions);
+        Collections.sort(questions, new Comparator<Question>() {
+            public int compare(Question a, Question b) {
+                return a.index - b.index;
+            }
+        });
+        ArrayList<Choice> choices = new ArrayList<>();
+        int[] choiceStart = new int[(questions.size() + 1)];
+        for (i = 0; i < questions.size(); i++) {
+            Question q = questions.get(i);
+            strings.add(q.text);
+            choiceStart[i] = choices.size();
+            ArrayList<Choice> sorted = new ArrayList<>(q.choices);
+            Collections.sort(sorted, new Comparator<Choice>() {
+                public int compare(Choice a, Choice b) {
+                    return a.index - b.index;
+                }
+            });
+            choices.addAll(sorted);
+        }
+        choiceStart[questions.size()] = choices.size();
+        int[] valueStart = new int[(choices.size() + 1)];
+        int nValues = 0;
+        for (i = 0; i < choices.size(); i++) {
+            valueStart[i] = nValues;
+            nValues += choices.get(i).values.size();
+            strings.add(choices.get(i).text);
+        }
+        valueStart[choices.size()] = nValues;
+        int[] reqStart = new int[(survey.results.size() + 1)];
+        int nReqs = 0;
+        for (i = 0; i < survey.results.size(); i++) {
+            reqStart[i] = nReqs;
+            nReqs += survey.results.get(i).reqs.size();
+            strings.add(survey.results.get(i).text);
+        }
+        reqStart[survey.results.size()] = nReqs;
+        ArrayList<Type> types = new ArrayList<>(survey.types);
+        Collections.sort(types);
+        for (i = 0; i < types.size(); i++) {
+            strings.add(types.get(i).text);
+        }
+        byte[][] encoded = new byte[strings.size()][];
+        int stringBytes = 0;
+        for (i = 0; i < encoded.length; i++) {
+            encoded[i] = String.valueOf(strings.get(i)).getBytes(UTF8);
+            stringBytes += encoded[i].length;
+        }
+        h.questions = questions.size();
+        h.choices = choices.size();
+        h.values = nValues;
+        h.results = survey.results.size();
+        h.requirements = nReqs;
+        h.types = types.size();
+        h.stringBytes = stringBytes;
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + payloadSize(h));
+        buf.position(HEADER_SIZE);
+        putInts(buf, choiceStart);
+        putInts(buf, valueStart);
+        for (i = 0; i < choices.size(); i++) {
+            Iterator<ValType> it = choices.get(i).values.iterator();
+            while (it.hasNext()) {
+                buf.putInt(it.next().type);
+            }
+        }
+        for (i = 0; i < choices.size(); i++) {
+            Iterator<ValType> it2 = choices.get(i).values.iterator();
+            while (it2.hasNext()) {
+                buf.putDouble(it2.next().value);
+            }
+        }
+        putInts(buf, reqStart);
+        ArrayList<Requirement> reqs = new ArrayList<>();
+        for (i = 0; i < survey.results.size(); i++) {
+            reqs.addAll(survey.results.get(i).reqs);
+        }
+        for (i = 0; i < reqs.size(); i++) {
+            buf.putInt(reqs.get(i).type);
+        }
+        for (i = 0; i < reqs.size(); i++) {
+            buf.putInt(reqs.get(i).target);
+        }
+        for (i = 0; i < reqs.size(); i++) {
+            buf.putDouble(reqs.get(i).min);
+        }
+        for (i = 0; i < reqs.size(); i++) {
+            buf.putDouble(reqs.get(i).max);
+        }
+        int end = 0;
+        for (i = 0; i < encoded.length; i++) {
+            end += encoded[i].length;
+            buf.putInt(end);
+        }
+        for (i = 0; i < encoded.length; i++) {
+            buf.put(encoded[i]);
+        }
+        buf.position(HEADER_SIZE);
+        h.checksum = checksum(buf);
+        buf.clear();
+        writeHeader(buf, h);
+        buf.clear();
+        return buf;
+    }
+
+    public static int fingerprint(Survey survey) {
+        try {
+            return readHeader(encode(survey, 0, 0)).checksum;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static Header readHeader(ByteBuffer in) throws IOException {
+        ByteBuffer buf = in.duplicate();
+        if (buf.remaining() < HEADER_SIZE) {
+            throw new IOException("Binary survey is truncated");
+        }
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("Not a binary survey");
+        }
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary survey version " + version);
+        }
+        Header h = new Header();
+        h.sourceLength = buf.getLong();
+        h.sourceModified = buf.getLong();
+        h.checksum = buf.getInt();
+        h.questions = buf.getInt();
+        h.choices = buf.getInt();
+        h.values = buf.getInt();
+        h.results = buf.getInt();
+        h.requirements = buf.getInt();
+        h.types = buf.getInt();
+        h.stringBytes = buf.getInt();
+        if (h.questions < 0 || h.choices < 0 || h.values < 0 || h.results < 0 || h.requirements < 0 || h.types < 0 || h.stringBytes < 0) {
+            throw new IOException("Corrupt binary survey header");
+        }
+        return h;
+    }
+
+    public static Survey decode(ByteBuffer in) throws IOException {
+        int i;
+        Header h = readHeader(in);
+        ByteBuffer buf = in.duplicate();
+        buf.position(buf.position() + HEADER_SIZE);
+        if (((long) buf.remaining()) != payloadSizeLong(h)) {
+            throw new IOException("Binary survey is truncated");
+        }
+        if (checksum(buf) != h.checksum) {
+            throw new IOException("Binary survey checksum mismatch");
+        }
+        int[] choiceStart = getInts(buf, h.questions + 1);
+        int[] valueStart = getInts(buf, h.choices + 1);
+        int[] valueType = getInts(buf, h.values);
+        double[] valueWeight = getDoubles(buf, h.values);
+        int[] reqStart = getInts(buf, h.results + 1);
+        int[] reqType = getInts(buf, h.requirements);
+        int[] reqTarget = getInts(buf, h.requirements);
+        double[] reqMin = getDoubles(buf, h.requirements);
+        double[] reqMax = getDoubles(buf, h.requirements);
+        int[] stringEnd = getInts(buf, (((h.questions + 2) + h.choices) + h.results) + h.types);
+        byte[] blob = new byte[h.stringBytes];
+        buf.get(blob);
+        int[] s = new int[]{0};
+        Survey res = new Survey();
+        res.name = string(blob, stringEnd, s);
+        res.website = string(blob, stringEnd, s);
+        for (i = 0; i < h.questions; i++) {
+            Question q = new Question(string(blob, stringEnd, s));
+            q.index = i;
+            res.questions.add(q);
+        }
+        for (i = 0; i < h.questions; i++) {
+            Question q = res.questions.get(i);
+            checkRange(choiceStart[i], choiceStart[i + 1], h.choices);
+            for (int c = choiceStart[i]; c < choiceStart[i + 1]; c++) {
+                Choice choice = new Choice(string(blob, stringEnd, s));
+                choice.index = c - choiceStart[i];
+                checkRange(valueStart[c], valueStart[c + 1], h.values);
+                for (int v = valueStart[c]; v < valueStart[c + 1]; v++) {
+                    choice.values.add(new ValType(valueType[v], valueWeight[v]));
+                }
+                q.choices.add(choice);
+            }
+        }
+        for (i = 0; i < h.results; i++) {
+            Result r = new Result(string(blob, stringEnd, s));
+            checkRange(reqStart[i], reqStart[i + 1], h.requirements);
+            for (int j = reqStart[i]; j < reqStart[i + 1]; j++) {
+                Requirement req = new Requirement();
+                req.type = reqType[j];
+                req.target = reqTarget[j];
+                req.min = reqMin[j];
+                req.max = reqMax[j];
+                r.reqs.add(req);
+            }
+            res.results.add(r);
+        }
+        for (i = 1; i <= h.types; i++) {
+            res.types.add(new Type(string(blob, stringEnd, s), i));
+        }
+        return res;
+    }
+
+    private static String string(byte[] blob, int[] stringEnd, int[] next) throws IOException {
+        int i = next[0];
+        next[0] = i + 1;
+        int start = i == 0 ? 0 : stringEnd[i - 1];
+        if (start < 0 || stringEnd[i] < start || stringEnd[i] > blob.length) {
+            throw new IOException("Corrupt binary survey string table");
+        }
+        return new String(blob, start, stringEnd[i] - start, UTF8);
+    }
+
+    private static void checkRange(int from, int to, int size) throws IOException {
+        if (from < 0 || to < from || to > size) {
+            throw new IOException("Corrupt binary survey index");
+        }
+    }
+
+    private static int payloadSize(Header h) {
+        long size = payloadSizeLong(h);
+        if (size <= 2147483647L - HEADER_SIZE) {
+            return (int) size;
+        }
+        throw new IllegalArgumentException("Survey is too large for the binary format");
+    }
+
+    private static long payloadSizeLong(Header h) {
+        long ints = (((((((long) h.questions) + 1) + (((long) h.choices) + 1)) + ((long) h.values)) + (((long) h.results) + 1)) + (((long) h.requirements) * 2)) + ((long) ((((h.questions + 2) + h.choices) + h.results) + h.types));
+        long doubles = ((long) h.values) + (((long) h.requirements) * 2);
+        return ((4 * ints) + (8 * doubles)) + ((long) h.stringBytes);
+    }
+
+    private static void writeHeader(ByteBuffer buf, Header h) {
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putLong(h.sourceLength);
+        buf.putLong(h.sourceModified);
+        buf.putInt(h.checksum);
+        buf.putInt(h.questions);
+        buf.putInt(h.choices);
+        buf.putInt(h.values);
+        buf.putInt(h.results);
+        buf.putInt(h.requirements);
+        buf.putInt(h.types);
+        buf.putInt(h.stringBytes);
+    }
+
+    private static int checksum(ByteBuffer buf) {
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static void putInts(ByteBuffer buf, int[] values) {
+        buf.asIntBuffer().put(values);
+        buf.position(buf.position() + (values.length * 4));
+    }
+
+    private static int[] getInts(ByteBuffer buf, int n) {
+        int[] res = new int[n];
+        buf.asIntBuffer().get(res);
+        buf.position(buf.position() + (n * 4));
+        return res;
+    }
+
+    private static double[] getDoubles(ByteBuffer buf, int n) {
+        double[] res = new double[n];
+        buf.asDoubleBuffer().get(res);
+        buf.position(buf.position() + (n * 8));
+        return res;
+    }
+}
@@ -0,0 +1,23 @@
+package common;
+
+import java.io.IOException;
+
+public class SurveyFormatException extends IOException {
+    private static final long serialVersionUID = 4120935486418842771L;
+    private final int column;
+    private final int line;
+
+    public SurveyFormatException(String msg, int line, int column) {
+        super(String.format("%s (line %d, column %d)", new Object[]{msg, Integer.valueOf(line), Integer.valueOf(column)}));
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine() {
+        return this.line;
+    }
+
+    public int getColumn() {
+        return this.column;
+    }
+}
@@ -0,0 +1,579 @@
+package common;
+
+import common.Choice.ValType;
+import common.Result.Requirement;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+public class SurveyReader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN;
+    private char[] buf;
+    private int column;
+    private double doubleValue;
+    private final Reader in;
+    private int intValue;
+    private int limit;
+    private int line;
+    private int mark;
+    private int markColumn;
+    private int markLine;
+    private boolean pending;
+    private int pendingValue;
+    private int pos;
+    private boolean seen;
+    private final StringBuilder text;
+    private char[] token;
+    private int tokenColumn;
+    private int tokenLength;
+    private int tokenLine;
+
+    static {
+        POWERS_OF_TEN = new double[23];
+        POWERS_OF_TEN[0] = 1.0d;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0d;
+        }
+    }
+
+    public SurveyReader(Reader in) {
+        this.in = in;
+        this.buf = new char[BUFFER_SIZE];
+        this.pos = 0;
+        this.limit = 0;
+        this.text = new StringBuilder();
+        this.token = new char[64];
+        this.line = 1;
+        this.column = 1;
+        this.mark = -1;
+    }
+
+    public SurveyReader(CharBuffer in) {
+        this.in = null;
+        if (in.hasArray()) {
+            this.buf = in.array();
+            this.pos = in.arrayOffset() + in.position();
+            this.limit = in.arrayOffset() + in.limit();
+        } else {
+            this.buf = new char[in.remaining()];
+            in.duplicate().get(this.buf);
+            this.pos = 0;
+            this.limit = this.buf.length;
+        }
+        this.text = new StringBuilder();
+        this.token = new char[64];
+        this.line = 1;
+        this.column = 1;
+        this.mark = -1;
+    }
+
+    public String readTitle() throws IOException {
+        return nextLine("the survey title");
+    }
+
+    public Survey read() throws IOException {
+        int i;
+        int num;
+        Survey res = new Survey();
+        res.name = nextLine("the survey title");
+        int nQuestions = nextInt("the number of questions");
+        for (i = 0; i < nQuestions; i++) {
+            skipLine();
+            Question cur = new Question(nextLine("the text of a question"));
+            cur.index = i;
+            setPending(cur.text);
+            int nChoices = nextInt("the number of choices");
+            for (int j = 0; j < nChoices; j++) {
+                skipLine();
+                Choice curChoice = new Choice(nextLine("the text of a choice"));
+                curChoice.index = j;
+                setPending(curChoice.text);
+                while (consumeInt()) {
+                    int type = this.intValue;
+                    setPending(type);
+                    if (!hasNextDouble()) {
+                        break;
+                    }
+                    curChoice.values.add(new ValType(type, nextDouble("the points of a choice")));
+                }
+                cur.choices.add(curChoice);
+            }
+            res.questions.add(cur);
+        }
+        if (this.seen) {
+            num = pendingCount("the number of results");
+        } else {
+            num = nextInt("the number of results");
+            setPending(num);
+        }
+        for (i = 0; i < num; i++) {
+            skipLine();
+            Result cur2 = new Result(nextLine("the text of a result"));
+            setPending(cur2.text);
+            while (consumeInt()) {
+                int type = this.intValue;
+                setPending(type);
+                if (!hasNextDouble()) {
+                    break;
+                }
+                Requirement r = new Requirement();
+                r.type = type;
+                if (r.type != 0) {
+                    r.min = nextDouble("the minimum points");
+                    r.max = nextDouble("the maximum points");
+                } else {
+                    r.target = nextInt("the target type");
+                }
+                cur2.reqs.add(r);
+            }
+            res.results.add(cur2);
+        }
+        num = pendingCount("the number of types");
+        for (i = 1; i <= num; i++) {
+            skipLine();
+            res.types.add(new Type(nextLine("the name of a type").trim(), i));
+        }
+        skipWhitespace();
+        if (num > 0) {
+            res.website = nextLine("the website");
+        } else {
+            skipTokenDelims();
+            readToken();
+            if (this.tokenLength == 0) {
+                throw unexpected("the website");
+            }
+            res.website = new String(this.token, 0, this.tokenLength);
+        }
+        return res;
+    }
+
+    // The section counts are not read directly: like the original Scanner based parser, the
+    // weight loops consume the count while looking for the next pair and hand it over here.
+    private int pendingCount(String what) throws IOException {
+        if (this.pending) {
+            return this.pendingValue;
+        }
+        throw error("Expected " + what, this.line, this.column);
+    }
+
+    private void setPending(int value) {
+        this.seen = true;
+        this.pending = true;
+        this.pendingValue = value;
+    }
+
+    private void setPending(String str) {
+        this.seen = true;
+        this.pending = false;
+        int n = str.length();
+        int i = 0;
+        boolean neg = false;
+        if (n > 0 && (str.charAt(0) == '-' || str.charAt(0) == '+')) {
+            neg = str.charAt(0) == '-';
+            i = 1;
+        }
+        if (i == n) {
+            return;
+        }
+        long value = 0;
+        while (i < n) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return;
+            }
+            value = (10 * value) + ((long) (c - '0'));
+            if (value > 2147483648L) {
+                return;
+            }
+            i++;
+        }
+        if (neg) {
+            value = -value;
+        }
+        if (value <= 2147483647L) {
+            this.pending = true;
+            this.pendingValue = (int) value;
+        }
+    }
+
+    private int nextInt(String what) throws IOException {
+        skipTokenDelims();
+        readToken();
+        if (!parseInt()) {
+            throw unexpected(what);
+        }
+        return this.intValue;
+    }
+
+    private double nextDouble(String what) throws IOException {
+        skipTokenDelims();
+        readToken();
+        if (!parseDouble()) {
+            throw unexpected(what);
+        }
+        return this.doubleValue;
+    }
+
+    private boolean consumeInt() throws IOException {
+        mark();
+        skipTokenDelims();
+        readToken();
+        if (parseInt()) {
+            this.mark = -1;
+            return true;
+        }
+        reset();
+        return false;
+    }
+
+    private boolean hasNextDouble() throws IOException {
+        mark();
+        skipTokenDelims();
+        readToken();
+        boolean res = parseDouble();
+        reset();
+        return res;
+    }
+
+    private String nextLine(String what) throws IOException {
+        skipLineDelims();
+        int startLine = this.line;
+        int startColumn = this.column;
+        this.text.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c < 0) {
+                break;
+            } else if (c == '#') {
+                if (commentEndsLine()) {
+                    break;
+                }
+                this.text.append(advance());
+            } else if (Character.isWhitespace((char) c)) {
+                int start = this.text.length();
+                mark();
+                boolean newline = false;
+                while (true) {
+                    c = peek();
+                    if (c < 0 || !Character.isWhitespace((char) c)) {
+                        break;
+                    } else if (c == '\n') {
+                        newline = true;
+                        break;
+                    } else {
+                        this.text.append(advance());
+                    }
+                }
+                if (newline) {
+                    this.text.setLength(start);
+                    reset();
+                    break;
+                }
+                this.mark = -1;
+            } else {
+                this.text.append(advance());
+            }
+        }
+        if (this.text.length() == 0) {
+            throw error("Expected " + what + " but reached end of file", startLine, startColumn);
+        }
+        return this.text.toString();
+    }
+
+    private boolean commentEndsLine() throws IOException {
+        mark();
+        int c;
+        do {
+            c = peek();
+            if (c < 0) {
+                break;
+            }
+            advance();
+        } while (c != '\n');
+        reset();
+        return c == '\n';
+    }
+
+    private void skipLineDelims() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == '#') {
+                if (!commentEndsLine()) {
+                    return;
+                }
+                while (peek() != '\n') {
+                    advance();
+                }
+                advance();
+            } else if (c >= 0 && Character.isWhitespace((char) c)) {
+                mark();
+                int lastLine = -1;
+                int lastOffset = 0;
+                while (true) {
+                    c = peek();
+                    if (c < 0 || !Character.isWhitespace((char) c)) {
+                        break;
+                    }
+                    if (advance() == '\n') {
+                        lastLine = this.line;
+                        lastOffset = this.pos - this.mark;
+                    }
+                }
+                if (lastLine < 0) {
+                    reset();
+                    return;
+                }
+                this.pos = this.mark + lastOffset;
+                this.line = lastLine;
+                this.column = 1;
+                this.mark = -1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipTokenDelims() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == '#') {
+                while (c >= 0 && c != '\n') {
+                    advance();
+                    c = peek();
+                }
+            } else if (c >= 0 && Character.isWhitespace((char) c)) {
+                advance();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c < 0 || !Character.isWhitespace((char) c)) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = peek();
+            if (c < 0) {
+                throw error("Expected end of line", this.line, this.column);
+            }
+            advance();
+        } while (c != '\n');
+    }
+
+    private void readToken() throws IOException {
+        this.tokenLine = this.line;
+        this.tokenColumn = this.column;
+        this.tokenLength = 0;
+        while (true) {
+            int c = peek();
+            if (c < 0 || c == '#' || Character.isWhitespace((char) c)) {
+                return;
+            }
+            if (this.tokenLength == this.token.length) {
+                this.token = Arrays.copyOf(this.token, this.token.length * 2);
+            }
+            char[] cArr = this.token;
+            int i = this.tokenLength;
+            this.tokenLength = i + 1;
+            cArr[i] = advance();
+        }
+    }
+
+    private boolean parseInt() {
+        char[] t = this.token;
+        int n = this.tokenLength;
+        int i = 0;
+        boolean neg = false;
+        if (n > 0 && (t[0] == '-' || t[0] == '+')) {
+            neg = t[0] == '-';
+            i = 1;
+        }
+        if (i == n) {
+            return false;
+        }
+        long value = 0;
+        while (i < n) {
+            if (t[i] < '0' || t[i] > '9') {
+                return false;
+            }
+            value = (10 * value) + ((long) (t[i] - '0'));
+            if (value > 2147483648L) {
+                return false;
+            }
+            i++;
+        }
+        if (neg) {
+            value = -value;
+        }
+        if (value > 2147483647L) {
+            return false;
+        }
+        this.intValue = (int) value;
+        return true;
+    }
+
+    private boolean parseDouble() {
+        char[] t = this.token;
+        int n = this.tokenLength;
+        int i = 0;
+        boolean neg = false;
+        if (n > 0 && (t[0] == '-' || t[0] == '+')) {
+            neg = t[0] == '-';
+            i = 1;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean digits = false;
+        boolean slow = false;
+        while (i < n && t[i] >= '0' && t[i] <= '9') {
+            digits = true;
+            if (mantissa != 0 || t[i] != '0') {
+                if (significant < MAX_FAST_DIGITS) {
+                    mantissa = (10 * mantissa) + ((long) (t[i] - '0'));
+                    significant++;
+                } else {
+                    slow = true;
+                }
+            }
+            i++;
+        }
+        if (i < n && t[i] == '.') {
+            i++;
+            while (i < n && t[i] >= '0' && t[i] <= '9') {
+                digits = true;
+                if (mantissa == 0 && t[i] == '0') {
+                    scale--;
+                } else if (significant < MAX_FAST_DIGITS) {
+                    mantissa = (10 * mantissa) + ((long) (t[i] - '0'));
+                    significant++;
+                    scale--;
+                } else {
+                    slow = true;
+                }
+                i++;
+            }
+        }
+        if (!digits) {
+            return false;
+        }
+        if (i < n && (t[i] == 'e' || t[i] == 'E')) {
+            i++;
+            boolean negExp = false;
+            if (i < n && (t[i] == '-' || t[i] == '+')) {
+                negExp = t[i] == '-';
+                i++;
+            }
+            if (i == n) {
+                return false;
+            }
+            int exp = 0;
+            while (i < n && t[i] >= '0' && t[i] <= '9') {
+                if (exp < 100000) {
+                    exp = (exp * 10) + (t[i] - '0');
+                }
+                i++;
+            }
+            scale = negExp ? scale - exp : scale + exp;
+        }
+        if (i != n) {
+            return false;
+        }
+        if (mantissa == 0 && !slow) {
+            this.doubleValue = 0.0d;
+        } else if (!slow && scale >= 0 && scale < POWERS_OF_TEN.length) {
+            this.doubleValue = ((double) mantissa) * POWERS_OF_TEN[scale];
+        } else if (slow || scale >= POWERS_OF_TEN.length || scale <= (-POWERS_OF_TEN.length)) {
+            this.doubleValue = Double.parseDouble(new String(t, 0, n));
+            return true;
+        } else {
+            this.doubleValue = ((double) mantissa) / POWERS_OF_TEN[-scale];
+        }
+        if (neg) {
+            this.doubleValue = -this.doubleValue;
+        }
+        return true;
+    }
+
+    private SurveyFormatException unexpected(String what) {
+        if (this.tokenLength == 0) {
+            return error("Expected " + what + " but reached end of file", this.tokenLine, this.tokenColumn);
+        }
+        return error("Expected " + what + " but found \"" + new String(this.token, 0, this.tokenLength) + "\"", this.tokenLine, this.tokenColumn);
+    }
+
+    private SurveyFormatException error(String msg, int line, int column) {
+        return new SurveyFormatException(msg, line, column);
+    }
+
+    private void mark() {
+        this.mark = this.pos;
+        this.markLine = this.line;
+        this.markColumn = this.column;
+    }
+
+    private void reset() {
+        this.pos = this.mark;
+        this.line = this.markLine;
+        this.column = this.markColumn;
+        this.mark = -1;
+    }
+
+    private int peek() throws IOException {
+        if (this.pos < this.limit || fill()) {
+            return this.buf[this.pos];
+        }
+        return -1;
+    }
+
+    private char advance() {
+        char[] cArr = this.buf;
+        int i = this.pos;
+        this.pos = i + 1;
+        char c = cArr[i];
+        if (c == '\n') {
+            this.line++;
+            this.column = 1;
+        } else {
+            this.column++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        if (this.in == null) {
+            return false;
+        }
+        int keep = this.mark >= 0 ? this.mark : this.pos;
+        if (keep > 0) {
+            System.arraycopy(this.buf, keep, this.buf, 0, this.limit - keep);
+            this.limit -= keep;
+            this.pos -= keep;
+            if (this.mark >= 0) {
+                this.mark -= keep;
+            }
+        }
+        if (this.limit == this.buf.length) {
+            this.buf = Arrays.copyOf(this.buf, this.buf.length * 2);
+        }
+        int n = this.in.read(this.buf, this.limit, this.buf.length - this.limit);
+        if (n <= 0) {
+            return false;
+        }
+        this.limit += n;
+        return true;
+    }
+}
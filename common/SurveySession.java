@@ -0,0 +1,174 @@
+package common;
+
+import java.util.List;
+import java.util.Random;
+
+public class SurveySession {
+    private static final Random SEEDS;
+    private final int[] choiceOrder;
+    private final CompiledSurvey compiled;
+    private int position;
+    private final int[] questionOrder;
+    private final LiveScore score;
+    private final long seed;
+    private final Survey survey;
+
+    static {
+        SEEDS = new Random();
+    }
+
+    public SurveySession(Survey survey) {
+        this(survey, SEEDS.nextLong());
+    }
+
+    public SurveySession(Survey survey, long seed) {
+        this.survey = survey;
+        this.seed = seed;
+        this.compiled = survey.compile();
+        this.score = new LiveScore(this.compiled);
+        int questions = this.compiled.getQuestionCount();
+        this.questionOrder = new int[questions];
+        this.choiceOrder = new int[this.compiled.choiceStart(questions)];
+        Random random = new Random(seed);
+        permute(this.questionOrder, 0, questions, random);
+        for (int q = 0; q < questions; q++) {
+            permute(this.choiceOrder, this.compiled.choiceStart(q), this.compiled.getChoiceCount(q), random);
+        }
+        this.position = 0;
+    }
+
+    private static void permute(int[] order, int offset, int n, Random random) {
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(i + 1);
+            order[offset + i] = order[offset + j];
+            order[offset + j] = i;
+        }
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public Survey getSurvey() {
+        return this.survey;
+    }
+
+    public CompiledSurvey getCompiled() {
+        return this.compiled;
+    }
+
+    public int getQuestionCount() {
+        return this.questionOrder.length;
+    }
+
+    public synchronized int getPosition() {
+        return this.position;
+    }
+
+    public synchronized Question getQuestion() {
+        return getQuestionAt(this.position);
+    }
+
+    public synchronized Question getNextQuestion() {
+        if (this.position + 1 >= this.questionOrder.length) {
+            return null;
+        }
+        this.position++;
+        return getQuestionAt(this.position);
+    }
+
+    public synchronized Question getPrevQuestion() {
+        if (this.position <= 0) {
+            return null;
+        }
+        this.position--;
+        return getQuestionAt(this.position);
+    }
+
+    public Question getQuestionAt(int position) {
+        if (this.questionOrder.length == 0) {
+            return null;
+        }
+        return this.compiled.getQuestion(this.questionOrder[position]);
+    }
+
+    public int getPositionOf(int question) {
+        for (int i = 0; i < this.questionOrder.length; i++) {
+            if (this.questionOrder[i] == question) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getQuestionIndex(int position) {
+        return this.questionOrder[position];
+    }
+
+    public int getChoiceIndex(int question, int position) {
+        if (position < 0 || position >= this.compiled.getChoiceCount(question)) {
+            throw new IndexOutOfBoundsException("Question " + (question + 1) + " has no choice " + (position + 1));
+        }
+        return this.choiceOrder[this.compiled.choiceStart(question) + position];
+    }
+
+    public int[] getQuestionOrder() {
+        return this.questionOrder.clone();
+    }
+
+    public int[] getChoiceOrder(int question) {
+        int start = this.compiled.choiceStart(question);
+        int[] res = new int[this.compiled.getChoiceCount(question)];
+        System.arraycopy(this.choiceOrder, start, res, 0, res.length);
+        return res;
+    }
+
+    public Choice getChoiceAt(Question q, int position) {
+        return this.compiled.getChoice(q.index, getChoiceIndex(q.index, position));
+    }
+
+    public Choice[] getChoices(Question q) {
+        Choice[] res = new Choice[this.compiled.getChoiceCount(q.index)];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = getChoiceAt(q, i);
+        }
+        return res;
+    }
+
+    public synchronized boolean answer(Question q, Choice c) {
+        return this.score.answer(q.index, c.index);
+    }
+
+    public synchronized Choice getAnswer(Question q) {
+        int c = this.score.getAnswer(q.index);
+        return c < 0 ? null : this.compiled.getChoice(q.index, c);
+    }
+
+    public synchronized int[] getAnswers() {
+        return this.score.getAnswers();
+    }
+
+    public synchronized boolean isComplete() {
+        return this.score.isComplete();
+    }
+
+    public synchronized double[] getScores() {
+        return this.score.getScores();
+    }
+
+    public synchronized List<Result> getResults() {
+        return this.score.getResults();
+    }
+
+    public LiveScore getLiveScore() {
+        return this.score;
+    }
+
+    public String[] getTypeNames() {
+        String[] res = new String[this.compiled.getTypeCount()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = this.compiled.getTypeName(i);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,457 @@
+package common;
+
+import common.BatchScorer.ScoreCard;
+import common.ResultMatcher.Scratch;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.statistics.BoxAndWhiskerItem;
+import org.jfree.data.statistics.DefaultBoxAndWhiskerCategoryDataset;
+import org.jfree.data.statistics.DefaultStatisticalCategoryDataset;
+import org.jfree.data.statistics.SimpleHistogramBin;
+import org.jfree.data.statistics.SimpleHistogramDataset;
+
+public final class SurveyStats {
+    public static final double DEFAULT_BIN_WIDTH = 0.5d;
+    private static final int MAX_BINS = 256;
+    private static final int SPLIT_THRESHOLD = 1024;
+    private final long[] choiceCounts;
+    private long count;
+    private final Histogram[] histograms;
+    private long invalid;
+    private final double[] m2;
+    private final double[] max;
+    private final double[] mean;
+    private final double[] min;
+    private final long[] resultCounts;
+    private final double[] scores;
+    private final Scratch scratch;
+    private final CompiledSurvey survey;
+    private final long[] unanswered;
+
+    public static final class Histogram {
+        private long[] counts;
+        private long first;
+        private double width;
+
+        Histogram(double width) {
+            this.width = width;
+            this.counts = new long[0];
+        }
+
+        void add(double value, long n) {
+            long bin = (long) Math.floor(value / this.width);
+            if (this.counts.length == 0) {
+                this.counts = new long[1];
+                this.first = bin;
+            } else if (bin < this.first || bin >= this.first + ((long) this.counts.length)) {
+                long lo = Math.min(bin, this.first);
+                long hi = Math.max(bin, (this.first + ((long) this.counts.length)) - 1);
+                if ((hi - lo) + 1 > MAX_BINS) {
+                    coarsen();
+                    add(value, n);
+                    return;
+                }
+                long[] grown = new long[(int) ((hi - lo) + 1)];
+                System.arraycopy(this.counts, 0, grown, (int) (this.first - lo), this.counts.length);
+                this.counts = grown;
+                this.first = lo;
+            }
+            this.counts[(int) (bin - this.first)] += n;
+        }
+
+        private void coarsen() {
+            long lo = Math.floorDiv(this.first, 2L);
+            long hi = Math.floorDiv((this.first + ((long) this.counts.length)) - 1, 2L);
+            long[] res = new long[(int) ((hi - lo) + 1)];
+            for (int i = 0; i < this.counts.length; i++) {
+                int j = (int) (Math.floorDiv(this.first + ((long) i), 2L) - lo);
+                res[j] += this.counts[i];
+            }
+            this.counts = res;
+            this.first = lo;
+            this.width *= 2.0d;
+        }
+
+        void merge(Histogram other) {
+            while (this.width < other.width) {
+                coarsen();
+            }
+            Histogram src = other;
+            if (other.width < this.width) {
+                src = other.copy();
+                while (src.width < this.width) {
+                    src.coarsen();
+                }
+            }
+            for (int i = 0; i < src.counts.length; i++) {
+                if (src.counts[i] > 0) {
+                    add((((double) (src.first + ((long) i))) + 0.5d) * src.width, src.counts[i]);
+                }
+            }
+        }
+
+        Histogram copy() {
+            Histogram res = new Histogram(this.width);
+            res.counts = this.counts.clone();
+            res.first = this.first;
+            return res;
+        }
+
+        public int getBinCount() {
+            return this.counts.length;
+        }
+
+        public double getBinWidth() {
+            return this.width;
+        }
+
+        public double getLowerBound(int bin) {
+            return ((double) (this.first + ((long) bin))) * this.width;
+        }
+
+        public double getUpperBound(int bin) {
+            return ((double) ((this.first + ((long) bin)) + 1)) * this.width;
+        }
+
+        public long getCount(int bin) {
+            return this.counts[bin];
+        }
+
+        double quantile(double p, long total) {
+            double rank = p * ((double) total);
+            long seen = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                if (this.counts[i] != 0 && ((double) (this.counts[i] + seen)) >= rank) {
+                    return getLowerBound(i) + (((rank - ((double) seen)) / ((double) this.counts[i])) * this.width);
+                }
+                seen += this.counts[i];
+            }
+            return getUpperBound(this.counts.length - 1);
+        }
+    }
+
+    private static class AggregateTask extends RecursiveTask<SurveyStats> {
+        private final double binWidth;
+        private final int from;
+        private final List<int[]> sheets;
+        private final CompiledSurvey survey;
+        private final int to;
+
+        AggregateTask(CompiledSurvey survey, double binWidth, List<int[]> sheets, int from, int to) {
+            this.survey = survey;
+            this.binWidth = binWidth;
+            this.sheets = sheets;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected SurveyStats compute() {
+            if (this.to - this.from <= SPLIT_THRESHOLD) {
+                SurveyStats stats = new SurveyStats(this.survey, this.binWidth);
+                for (int i = this.from; i < this.to; i++) {
+                    stats.add(this.sheets.get(i));
+                }
+                return stats;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            AggregateTask right = new AggregateTask(this.survey, this.binWidth, this.sheets, mid, this.to);
+            right.fork();
+            SurveyStats res = new AggregateTask(this.survey, this.binWidth, this.sheets, this.from, mid).compute();
+            res.merge(right.join());
+            return res;
+        }
+    }
+
+    public SurveyStats(CompiledSurvey survey) {
+        this(survey, DEFAULT_BIN_WIDTH);
+    }
+
+    public SurveyStats(CompiledSurvey survey, double binWidth) {
+        if (binWidth <= 0.0d || Double.isNaN(binWidth) || Double.isInfinite(binWidth)) {
+            throw new IllegalArgumentException("Bin width must be positive, got " + binWidth);
+        }
+        this.survey = survey;
+        int types = survey.getTypeCount();
+        this.mean = new double[types];
+        this.m2 = new double[types];
+        this.min = new double[types];
+        this.max = new double[types];
+        this.histograms = new Histogram[types];
+        for (int i = 0; i < types; i++) {
+            this.histograms[i] = new Histogram(binWidth);
+        }
+        this.resultCounts = new long[survey.getResultCount()];
+        int questions = survey.getQuestionCount();
+        this.unanswered = new long[questions];
+        this.choiceCounts = new long[survey.choiceStart(questions)];
+        this.scores = survey.newScores();
+        this.scratch = survey.getMatcher().newScratch();
+    }
+
+    public static SurveyStats aggregate(CompiledSurvey survey, Iterator<int[]> sheets, ForkJoinPool pool, int blockSize) {
+        SurveyStats res = new SurveyStats(survey);
+        List<int[]> block = nextBlock(sheets, blockSize);
+        while (!block.isEmpty()) {
+            ForkJoinTask<SurveyStats> task = pool.submit(new AggregateTask(survey, DEFAULT_BIN_WIDTH, block, 0, block.size()));
+            block = nextBlock(sheets, blockSize);
+            res.merge(task.join());
+        }
+        return res;
+    }
+
+    private static List<int[]> nextBlock(Iterator<int[]> sheets, int blockSize) {
+        ArrayList<int[]> block = new ArrayList<>();
+        while (block.size() < blockSize && sheets.hasNext()) {
+            block.add(sheets.next());
+        }
+        return block;
+    }
+
+    public boolean add(int[] answers) {
+        try {
+            this.survey.score(answers, this.scores);
+        } catch (IllegalArgumentException e) {
+            this.invalid++;
+            return false;
+        } catch (IndexOutOfBoundsException e2) {
+            this.invalid++;
+            return false;
+        }
+        add(answers, this.scores);
+        return true;
+    }
+
+    public boolean add(ScoreCard card) {
+        if (card.isValid()) {
+            add(card.getAnswers(), card.getScores());
+            return true;
+        }
+        this.invalid++;
+        return false;
+    }
+
+    public void add(SurveySession session) {
+        add(session.getAnswers(), session.getScores());
+    }
+
+    public void add(int[] answers, double[] scores) {
+        int i;
+        this.count++;
+        for (i = 0; i < scores.length; i++) {
+            double v = scores[i];
+            if (this.count == 1) {
+                this.min[i] = v;
+                this.max[i] = v;
+            } else {
+                this.min[i] = Math.min(this.min[i], v);
+                this.max[i] = Math.max(this.max[i], v);
+            }
+            double delta = v - this.mean[i];
+            this.mean[i] += delta / ((double) this.count);
+            this.m2[i] += (v - this.mean[i]) * delta;
+            this.histograms[i].add(v, 1);
+        }
+        for (i = 0; i < answers.length; i++) {
+            if (answers[i] < 0) {
+                this.unanswered[i]++;
+            } else {
+                this.choiceCounts[this.survey.choiceStart(i) + answers[i]]++;
+            }
+        }
+        int matched = this.survey.getMatcher().match(scores, this.scratch);
+        for (i = 0; i < matched; i++) {
+            this.resultCounts[this.scratch.get(i)]++;
+        }
+    }
+
+    public void merge(SurveyStats other) {
+        if (other.survey != this.survey) {
+            throw new IllegalArgumentException("Cannot merge statistics of different surveys");
+        }
+        int i;
+        this.invalid += other.invalid;
+        if (other.count != 0) {
+            long n = this.count + other.count;
+            for (i = 0; i < this.mean.length; i++) {
+                if (this.count == 0) {
+                    this.min[i] = other.min[i];
+                    this.max[i] = other.max[i];
+                } else {
+                    this.min[i] = Math.min(this.min[i], other.min[i]);
+                    this.max[i] = Math.max(this.max[i], other.max[i]);
+                }
+                double delta = other.mean[i] - this.mean[i];
+                this.m2[i] += other.m2[i] + ((((delta * delta) * ((double) this.count)) * ((double) other.count)) / ((double) n));
+                this.mean[i] += (((double) other.count) * delta) / ((double) n);
+                this.histograms[i].merge(other.histograms[i]);
+            }
+            this.count = n;
+            for (i = 0; i < this.resultCounts.length; i++) {
+                this.resultCounts[i] += other.resultCounts[i];
+            }
+            for (i = 0; i < this.choiceCounts.length; i++) {
+                this.choiceCounts[i] += other.choiceCounts[i];
+            }
+            for (i = 0; i < this.unanswered.length; i++) {
+                this.unanswered[i] += other.unanswered[i];
+            }
+        }
+    }
+
+    public CompiledSurvey getSurvey() {
+        return this.survey;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getInvalidCount() {
+        return this.invalid;
+    }
+
+    public double getMean(int type) {
+        return this.count == 0 ? Double.NaN : this.mean[type];
+    }
+
+    public double getStdDev(int type) {
+        return this.count == 0 ? Double.NaN : Math.sqrt(this.m2[type] / ((double) this.count));
+    }
+
+    public double getMin(int type) {
+        return this.count == 0 ? Double.NaN : this.min[type];
+    }
+
+    public double getMax(int type) {
+        return this.count == 0 ? Double.NaN : this.max[type];
+    }
+
+    public double getPercentile(int type, double percent) {
+        if (percent < 0.0d || percent > 100.0d) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percent);
+        } else if (this.count == 0) {
+            return Double.NaN;
+        } else {
+            double v = this.histograms[type].quantile(percent / 100.0d, this.count);
+            return Math.max(this.min[type], Math.min(this.max[type], v));
+        }
+    }
+
+    public Histogram getHistogram(int type) {
+        return this.histograms[type];
+    }
+
+    public long getResultCount(int result) {
+        return this.resultCounts[result];
+    }
+
+    public double getResultFrequency(int result) {
+        return this.count == 0 ? 0.0d : ((double) this.resultCounts[result]) / ((double) this.count);
+    }
+
+    public long getChoiceCount(int question, int choice) {
+        if (choice >= 0 && choice < this.survey.getChoiceCount(question)) {
+            return this.choiceCounts[this.survey.choiceStart(question) + choice];
+        }
+        throw new IndexOutOfBoundsException("Question " + question + " has no choice " + choice);
+    }
+
+    public long getUnansweredCount(int question) {
+        return this.unanswered[question];
+    }
+
+    public DefaultStatisticalCategoryDataset createMeanDataset(String series) {
+        DefaultStatisticalCategoryDataset res = new DefaultStatisticalCategoryDataset();
+        for (int i = 0; i < this.mean.length; i++) {
+            res.add(getMean(i), getStdDev(i), (Comparable) series, (Comparable) this.survey.getTypeName(i));
+        }
+        return res;
+    }
+
+    public DefaultBoxAndWhiskerCategoryDataset createBoxDataset(String series) {
+        DefaultBoxAndWhiskerCategoryDataset res = new DefaultBoxAndWhiskerCategoryDataset();
+        for (int i = 0; i < this.mean.length; i++) {
+            res.add(new BoxAndWhiskerItem(getMean(i), getPercentile(i, 50.0d), getPercentile(i, 25.0d), getPercentile(i, 75.0d), getMin(i), getMax(i), getMin(i), getMax(i), Collections.EMPTY_LIST), (Comparable) series, (Comparable) this.survey.getTypeName(i));
+        }
+        return res;
+    }
+
+    public SimpleHistogramDataset createHistogramDataset(int type) {
+        SimpleHistogramDataset res = new SimpleHistogramDataset(this.survey.getTypeName(type));
+        res.setAdjustForBinSize(false);
+        Histogram h = this.histograms[type];
+        for (int i = 0; i < h.getBinCount(); i++) {
+            SimpleHistogramBin bin = new SimpleHistogramBin(h.getLowerBound(i), h.getUpperBound(i), true, false);
+            bin.setItemCount((int) Math.min(h.getCount(i), 2147483647L));
+            res.addBin(bin);
+        }
+        return res;
+    }
+
+    public DefaultCategoryDataset createResultDataset(String series) {
+        DefaultCategoryDataset res = new DefaultCategoryDataset();
+        for (int i = 0; i < this.resultCounts.length; i++) {
+            res.addValue((double) this.resultCounts[i], (Comparable) series, (Comparable) ((i + 1) + ": " + this.survey.getResult(i).getText()));
+        }
+        return res;
+    }
+
+    public DefaultCategoryDataset createChoiceDataset(int question) {
+        DefaultCategoryDataset res = new DefaultCategoryDataset();
+        String series = this.survey.getQuestion(question).getText();
+        for (int i = 0; i < this.survey.getChoiceCount(question); i++) {
+            res.addValue((double) getChoiceCount(question, i), (Comparable) series, (Comparable) ((i + 1) + ": " + this.survey.getChoice(question, i).getText()));
+        }
+        return res;
+    }
+
+    public void write(Writer out) throws IOException {
+        int i;
+        StringBuilder sb = new StringBuilder("{\"respondents\":");
+        sb.append(this.count).append(",\"invalid\":").append(this.invalid).append(",\"types\":[");
+        for (i = 0; i < this.mean.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":");
+            MatchTrace.quote(sb, this.survey.getTypeName(i));
+            if (this.count > 0) {
+                sb.append(",\"mean\":").append(getMean(i)).append(",\"stddev\":").append(getStdDev(i)).append(",\"min\":").append(getMin(i)).append(",\"p25\":").append(getPercentile(i, 25.0d)).append(",\"median\":").append(getPercentile(i, 50.0d)).append(",\"p75\":").append(getPercentile(i, 75.0d)).append(",\"p90\":").append(getPercentile(i, 90.0d)).append(",\"max\":").append(getMax(i));
+            }
+            sb.append('}');
+        }
+        sb.append("],\"results\":[");
+        for (i = 0; i < this.resultCounts.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"text\":");
+            MatchTrace.quote(sb, this.survey.getResult(i).getText());
+            sb.append(",\"count\":").append(this.resultCounts[i]).append('}');
+        }
+        sb.append("],\"questions\":[");
+        for (i = 0; i < this.unanswered.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"unanswered\":").append(this.unanswered[i]).append(",\"choices\":[");
+            for (int j = 0; j < this.survey.getChoiceCount(i); j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append(getChoiceCount(i, j));
+            }
+            sb.append("]}");
+        }
+        sb.append("]}\n");
+        out.append(sb);
+    }
+}
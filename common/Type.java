@@ -6,9 +6,13 @@ public class Type implements Comparable<Type> {
     String text;
 
     public Type(String text, int index) {
+        this(text, index, 0.0d);
+    }
+
+    public Type(String text, int index, double points) {
         this.text = text;
         this.index = index;
-        this.points = 0.0d;
+        this.points = points;
     }
 
     public String toString() {
@@ -19,6 +23,10 @@ public class Type implements Comparable<Type> {
         return this.index - o.index;
     }
 
+    public int getIndex() {
+        return this.index;
+    }
+
     public String getText() {
         return this.text;
     }
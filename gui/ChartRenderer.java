@@ -0,0 +1,165 @@
+package gui;
+
+import io.ReportWriter.Report;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.encoders.KeypointPNGEncoderAdapter;
+
+public class ChartRenderer {
+    public static final int DEFAULT_HEIGHT = 400;
+    public static final int DEFAULT_WIDTH = 600;
+    private static final int MAX_CHART_ELEMENTS = 8;
+    private static ChartRenderer defaultRenderer;
+    private final BlockingQueue<Canvas> canvases;
+    private final KeypointPNGEncoderAdapter encoder;
+    private final int height;
+    private final int width;
+
+    private class Canvas {
+        final Rectangle2D area;
+        final BufferedImage image;
+
+        Canvas() {
+            this.image = new BufferedImage(ChartRenderer.this.width, ChartRenderer.this.height, BufferedImage.TYPE_INT_RGB);
+            this.area = new Rectangle2D.Double(0.0d, 0.0d, (double) ChartRenderer.this.width, (double) ChartRenderer.this.height);
+        }
+    }
+
+    public static class Slices {
+        private final String[] names;
+        private final double[] values;
+
+        Slices(String[] names, double[] values) {
+            this.names = names;
+            this.values = values;
+        }
+
+        public String[] getNames() {
+            return this.names;
+        }
+
+        public double[] getValues() {
+            return this.values;
+        }
+    }
+
+    public ChartRenderer() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    public ChartRenderer(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Chart size must be positive, got " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.encoder = new KeypointPNGEncoderAdapter();
+        this.encoder.setQuality(1.0f);
+        this.canvases = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static synchronized ChartRenderer getDefault() {
+        if (defaultRenderer == null) {
+            defaultRenderer = new ChartRenderer();
+        }
+        return defaultRenderer;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public byte[] renderPie(String title, String[] names, double[] values) throws IOException {
+        return render(PieChart.createChart(title, names, values));
+    }
+
+    public byte[] renderBar(String title, String domainLabel, String rangeLabel, String[] names, double[] values) throws IOException {
+        return render(BarChart.createChart(BarChart.createDataset(names, values, title), title, domainLabel, rangeLabel));
+    }
+
+    public byte[] render(JFreeChart chart) throws IOException {
+        Canvas c = this.canvases.poll();
+        if (c == null) {
+            c = new Canvas();
+        }
+        try {
+            Graphics2D g = c.image.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, this.width, this.height);
+                chart.draw(g, c.area);
+            } finally {
+                g.dispose();
+            }
+            byte[] png = this.encoder.encode(c.image);
+            if (png == null) {
+                throw new IOException("Could not encode a " + this.width + "x" + this.height + " chart as PNG");
+            }
+            return png;
+        } finally {
+            this.canvases.offer(c);
+        }
+    }
+
+    public void addCharts(Report report, String title, String[] names, double[] values) throws IOException {
+        Slices top = top(names, values);
+        report.addChart(renderPie(title, top.getNames(), top.getValues()));
+        report.addChart(renderBar(title, "Categories", "Points", top.getNames(), top.getValues()));
+    }
+
+    public static Slices top(String[] names, double[] values) {
+        if (names.length != values.length) {
+            throw new IllegalArgumentException("Got " + names.length + " names for " + values.length + " values");
+        }
+        Integer[] order = order(values);
+        return new Slices(topNames(names, order), topValues(values, order));
+    }
+
+    private static Integer[] order(final double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(values[b.intValue()], values[a.intValue()]);
+            }
+        });
+        return order;
+    }
+
+    private static String[] topNames(String[] names, Integer[] order) {
+        String[] res = new String[Math.min(order.length, MAX_CHART_ELEMENTS)];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = names[order[i].intValue()];
+        }
+        if (order.length > MAX_CHART_ELEMENTS) {
+            res[res.length - 1] = "Other";
+        }
+        return res;
+    }
+
+    private static double[] topValues(double[] values, Integer[] order) {
+        double[] res = new double[Math.min(order.length, MAX_CHART_ELEMENTS)];
+        for (int i = 0; i < order.length; i++) {
+            int j = Math.min(i, res.length - 1);
+            res[j] = res[j] + values[order[i].intValue()];
+        }
+        return res;
+    }
+}
@@ -2,8 +2,10 @@ package gui;
 
 import common.Choice;
 import common.Question;
-import common.Survey;
+import common.SurveySession;
 import common.Util;
+import java.awt.event.ItemEvent;
+import java.awt.event.ItemListener;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.logging.Level;
@@ -18,7 +20,7 @@ public class ChoicePanel extends JPanel {
     private ButtonGroup btnGp;
     private ArrayList<RadioWrapper> buttons;
     private final Question question;
-    private final Survey survey;
+    private final SurveySession session;
 
     private static class RadioWrapper extends JRadioButton {
         private final Choice c;
@@ -37,9 +39,9 @@ public class ChoicePanel extends JPanel {
         logger = Logger.getLogger(ChoicePanel.class.getName());
     }
 
-    public ChoicePanel(Survey s, Question q) {
+    public ChoicePanel(SurveySession session, Question q) {
         this.question = q;
-        this.survey = s;
+        this.session = session;
         this.buttons = new ArrayList();
         initialize();
     }
@@ -47,19 +49,36 @@ public class ChoicePanel extends JPanel {
     private void initialize() {
         setLayout(new BoxLayout(this, 1));
         this.btnGp = new ButtonGroup();
-        Iterator it = this.question.getChoices().iterator();
-        while (it.hasNext()) {
-            RadioWrapper cur = new RadioWrapper((Choice) it.next());
+        Choice[] choices = this.session.getChoices(this.question);
+        Choice answer = this.session.getAnswer(this.question);
+        for (int i = 0; i < choices.length; i++) {
+            final RadioWrapper cur = new RadioWrapper(choices[i]);
             cur.setFont(Util.CHOICE_FONT);
             cur.setFocusable(false);
             cur.setToolTipText("Click the to select this option");
+            cur.setSelected(choices[i] == answer);
+            cur.addItemListener(new ItemListener() {
+                public void itemStateChanged(ItemEvent e) {
+                    if (e.getStateChange() == ItemEvent.SELECTED) {
+                        ChoicePanel.this.session.answer(ChoicePanel.this.question, cur.getChoice());
+                    }
+                }
+            });
             this.btnGp.add(cur);
             this.buttons.add(cur);
             add(cur);
-            logger.log(Level.INFO, "Added choice: " + cur);
+            logger.log(Level.FINE, "Added choice: {0}", cur);
         }
     }
 
+    public Question getQuestion() {
+        return this.question;
+    }
+
+    public int getChoiceCount() {
+        return this.buttons.size();
+    }
+
     public Choice getSelectedChoce() {
         Iterator it = this.buttons.iterator();
         while (it.hasNext()) {
@@ -3,6 +3,9 @@ package gui;
 import common.Survey;
 import common.Util;
 import io.Parser;
+import io.SurveyLoader.LoadError;
+import io.SurveyRepository;
+import io.SurveyRepository.Listing;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Font;
@@ -10,14 +13,22 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.SpringLayout;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
 
 public class MenuPanel extends JPanel {
+    private static final int MAX_ERRORS_SHOWN = 10;
     private JButton btnExit;
     private JButton btnHelp;
     private JButton btnLoad;
@@ -29,12 +40,12 @@ public class MenuPanel extends JPanel {
     class 1 implements ActionListener {
 
         final class SurveyWrapper {
+            public Listing listing;
             public String name;
-            public Survey survey;
 
-            public SurveyWrapper(Survey survey) {
-                this.name = survey.getTitle();
-                this.survey = survey;
+            public SurveyWrapper(Listing listing) {
+                this.name = listing.getTitle();
+                this.listing = listing;
             }
 
             public String toString() {
@@ -46,19 +57,99 @@ public class MenuPanel extends JPanel {
         }
 
         public void actionPerformed(ActionEvent e) {
-            try {
-                Survey[] surveys = Parser.readAll(new File("./assets"));
-                SurveyWrapper[] wrapped = new SurveyWrapper[surveys.length];
-                for (int i = 0; i < surveys.length; i++) {
-                    wrapped[i] = new SurveyWrapper(surveys[i]);
+            MenuPanel.this.btnStart.setEnabled(false);
+            new SurveyWorker(SurveyRepository.getDefault()).execute();
+        }
+
+        final class SurveyWorker extends SwingWorker<Void, Integer> {
+            private final File dir;
+            private final ArrayList<LoadError> errors;
+            private final ArrayList<SurveyWrapper> loaded;
+            private final SurveyRepository repository;
+
+            SurveyWorker(SurveyRepository repository) {
+                this.repository = repository;
+                this.dir = repository.getDirectory();
+                this.loaded = new ArrayList<>();
+                this.errors = new ArrayList<>();
+            }
+
+            protected Void doInBackground() throws Exception {
+                while (!this.repository.awaitReady(100, TimeUnit.MILLISECONDS)) {
+                    publish(new Integer[]{Integer.valueOf(this.repository.getLoadedCount())});
+                }
+                List<Listing> listings = this.repository.getListings();
+                for (int i = 0; i < listings.size(); i++) {
+                    this.loaded.add(new SurveyWrapper(listings.get(i)));
+                }
+                this.errors.addAll(this.repository.getErrors());
+                return null;
+            }
+
+            protected void process(List<Integer> chunks) {
+                MenuPanel.this.btnStart.setText("Loading (" + chunks.get(chunks.size() - 1) + ")");
+            }
+
+            protected void done() {
+                MenuPanel.this.btnStart.setText("Start");
+                MenuPanel.this.btnStart.setEnabled(true);
+                try {
+                    get();
+                    if (!this.errors.isEmpty()) {
+                        StringBuilder sb = new StringBuilder("Some surveys could not be read:\n");
+                        for (int i = 0; i < Math.min(this.errors.size(), MAX_ERRORS_SHOWN); i++) {
+                            sb.append(this.errors.get(i)).append('\n');
+                        }
+                        if (this.errors.size() > MAX_ERRORS_SHOWN) {
+                            sb.append("... and ").append(this.errors.size() - MAX_ERRORS_SHOWN).append(" more");
+                        }
+                        Util.showError(sb.toString());
+                    }
+                    if (this.loaded.isEmpty()) {
+                        Util.showError("There are no surveys in the " + this.dir.getAbsolutePath() + " folder.");
+                        return;
+                    }
+                    Collections.sort(this.loaded, new Comparator<SurveyWrapper>() {
+                        public int compare(SurveyWrapper a, SurveyWrapper b) {
+                            return String.valueOf(a.name).compareToIgnoreCase(String.valueOf(b.name));
+                        }
+                    });
+                    SurveyWrapper[] wrapped = this.loaded.toArray(new SurveyWrapper[this.loaded.size()]);
+                    SurveyWrapper selected = (SurveyWrapper) JOptionPane.showInputDialog(MenuPanel.this.parent, "Select a survey:", "Choose a Survey", -1, null, wrapped, wrapped[0]);
+                    if (selected != null) {
+                        MenuPanel.this.btnStart.setEnabled(false);
+                        new OpenWorker(this.repository, selected.listing).execute();
+                    }
+                } catch (InterruptedException e) {
+                } catch (ExecutionException ex) {
+                    Util.showError("Could not read the surveys. Make sure there are surveys in the " + this.dir.getAbsolutePath() + " folder (in the same folder as this program.");
+                    ex.getCause().printStackTrace();
                 }
-                SurveyWrapper selected = (SurveyWrapper) JOptionPane.showInputDialog(MenuPanel.this.parent, "Select a survey:", "Choose a Survey", -1, null, wrapped, wrapped[0]);
-                if (selected != null) {
-                    MenuPanel.this.parent.addContent(new SurveyPanel(MenuPanel.this.parent, selected.survey));
+            }
+        }
+
+        final class OpenWorker extends SwingWorker<Survey, Void> {
+            private final Listing listing;
+            private final SurveyRepository repository;
+
+            OpenWorker(SurveyRepository repository, Listing listing) {
+                this.repository = repository;
+                this.listing = listing;
+            }
+
+            protected Survey doInBackground() throws Exception {
+                return this.repository.load(this.listing);
+            }
+
+            protected void done() {
+                MenuPanel.this.btnStart.setEnabled(true);
+                try {
+                    MenuPanel.this.parent.addContent(new SurveyPanel(MenuPanel.this.parent, get()));
+                } catch (InterruptedException e) {
+                } catch (ExecutionException ex) {
+                    Util.showError("Could not read " + new LoadError(this.listing.getFile(), ex.getCause()));
+                } catch (IllegalArgumentException e2) {
                 }
-            } catch (IOException ex) {
-                Util.showError("Could not read the surveys. Make sure there are surveys in the " + new File("./assets").getAbsolutePath() + " folder (in the same folder as this program.");
-                ex.printStackTrace();
             }
         }
     }
@@ -102,6 +193,7 @@ public class MenuPanel extends JPanel {
 
     public MenuPanel(MainFrame parent) {
         this.parent = parent;
+        SurveyRepository.getDefault();
         initialize();
         addListeners();
     }
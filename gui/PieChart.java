@@ -15,6 +15,10 @@ public class PieChart {
         return panel;
     }
 
+    public static JFreeChart createChart(String chartTitle, String[] name, double[] number) {
+        return createChart(createDataset(name, number), chartTitle);
+    }
+
     private static PieDataset createDataset(String[] name, double[] number) {
         DefaultPieDataset result = new DefaultPieDataset();
         for (int i = 0; i < name.length; i++) {
@@ -1,49 +1,69 @@
 package gui;
 
+import common.PopulationSketch;
 import common.Result;
 import common.Survey;
+import common.SurveySession;
 import common.Type;
 import common.Util;
+import io.ReportWriter;
+import io.ResponseLog;
+import io.SketchStore;
+import io.ReportWriter.Report;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
-import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
+import javax.swing.SwingWorker;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
 
 public class ResultPanel extends JPanel {
     private static final int MAX_CHART_ELEMENTS = 7;
+    private static ExecutorService executor;
     private static Logger logger;
     private JPanel barChart;
+    private JButton btnSave;
     private MainFrame parent;
     private JPanel pieChart;
+    private double[] ranks;
     private List<Result> results;
     private Survey survey;
     private JTable table;
+    private JPanel tableHolder;
+    private JScrollPane tableScroll;
+    private JTextArea textArea;
+    private ArrayList<Type> types;
+    private ArrayList<SwingWorker<?, ?>> workers;
 
     class 1 implements Comparator<Type> {
         1() {
@@ -74,45 +94,24 @@ public class ResultPanel extends JPanel {
             }
             try {
                 int i;
-                PrintWriter fout = new PrintWriter(file);
-                fout.println("<!DOCTYPE html>");
-                fout.println("<head>");
-                fout.println("<strong>" + ResultPanel.this.survey.getTitle() + "</strong>");
-                fout.println("</head>");
-                fout.println("<body>");
-                fout.println("<p>");
-                fout.println("Results:<br>");
-                fout.println("<ol type=\"1\">");
-                for (i = 0; i < ResultPanel.this.results.size(); i++) {
-                    fout.println("<li>");
-                    fout.printf("%s", new Object[]{((Result) ResultPanel.this.results.get(i)).getText()});
-                    fout.println("</li>");
-                }
-                fout.println("</ol>");
-                fout.println("</p>");
-                fout.println("<p>");
-                fout.println("Points breakdown:<br>");
-                fout.println("<ul>");
-                for (i = 0; i < ResultPanel.this.survey.getTypes().size(); i++) {
-                    fout.println("<li>");
-                    fout.printf("%s: %4.2f", new Object[]{((Type) ResultPanel.this.survey.getTypes().get(i)).getText(), Double.valueOf(((Type) ResultPanel.this.survey.getTypes().get(i)).getPoints())});
-                    fout.println("</li>");
-                }
-                fout.println("</ul>");
-                fout.println("</p>");
-                fout.println("<br><br><br>");
-                String website = ResultPanel.this.survey.getWebsite();
-                if (!(website.startsWith("http://") || website.startsWith("https://"))) {
-                    website = "http://" + website;
+                String[] typeNames = new String[ResultPanel.this.types.size()];
+                double[] scores = new double[typeNames.length];
+                for (i = 0; i < typeNames.length; i++) {
+                    typeNames[i] = ResultPanel.this.types.get(i).getText();
+                    scores[i] = ResultPanel.this.types.get(i).getPoints();
                 }
-                fout.printf("For more information, click <a href=\"%s\">here</a>\n", new Object[]{website});
-                fout.println("</body>");
-                if (fout != null) {
-                    fout.close();
+                ArrayList<String> texts = new ArrayList<>();
+                for (i = 0; i < ResultPanel.this.results.size(); i++) {
+                    texts.add(ResultPanel.this.results.get(i).getText());
                 }
+                Report report = new Report(ResultPanel.this.survey.getTitle(), typeNames, scores, texts);
+                report.setWebsite(ResultPanel.this.survey.getWebsite());
+                ChartRenderer.getDefault().addCharts(report, ResultPanel.this.survey.getTitle(), typeNames, scores);
+                ReportWriter.getDefault().write(report, file);
                 ResultPanel.logger.log(Level.INFO, "Written to " + file.getAbsolutePath());
                 Util.open(file);
-            } catch (FileNotFoundException e1) {
+            } catch (IOException e1) {
+                Util.showError("Error writing file " + file.getAbsolutePath());
                 e1.printStackTrace();
             }
         }
@@ -150,60 +149,276 @@ public class ResultPanel extends JPanel {
         }
     }
 
+    private static class Summary {
+        final String[] names;
+        final double[] nums;
+        final double[] ranks;
+        final List<Result> results;
+        final double[] scores;
+        final DefaultTableModel table;
+        final String text;
+        final ArrayList<Type> types;
+
+        Summary(ArrayList<Type> types, double[] scores, List<Result> results, double[] ranks) {
+            int i;
+            this.types = types;
+            this.scores = scores;
+            this.results = results;
+            this.ranks = ranks;
+            int chartSize = Math.min(types.size(), 8);
+            this.names = new String[chartSize];
+            this.nums = new double[chartSize];
+            if (types.size() > chartSize) {
+                for (i = 0; i < MAX_CHART_ELEMENTS; i++) {
+                    this.names[i] = types.get(i).getText();
+                    this.nums[i] = types.get(i).getPoints();
+                }
+                this.names[chartSize - 1] = "Other";
+                for (i = chartSize - 1; i < types.size(); i++) {
+                    this.nums[chartSize - 1] += types.get(i).getPoints();
+                }
+            } else {
+                for (i = 0; i < chartSize; i++) {
+                    this.names[i] = types.get(i).getText();
+                    this.nums[i] = types.get(i).getPoints();
+                }
+            }
+            StringBuilder resultBuilder = new StringBuilder();
+            resultBuilder.append("Results: \n");
+            for (i = 0; i < results.size(); i++) {
+                resultBuilder.append(String.format("%d: ", new Object[]{Integer.valueOf(i + 1)})).append(results.get(i).getText()).append("\n");
+            }
+            if (ranks != null) {
+                resultBuilder.append("\nCompared to other respondents: \n");
+                for (i = 0; i < types.size(); i++) {
+                    Type t = types.get(i);
+                    resultBuilder.append(String.format("You scored higher than %.0f%% on %s\n", new Object[]{Double.valueOf(ranks[t.getIndex() - 1]), t.getText()}));
+                }
+            }
+            this.text = resultBuilder.toString();
+            String[] columnNames = ranks != null ? new String[]{"Category", "Points", "Percentage", "Percentile"} : new String[]{"Category", "Points", "Percentage"};
+            Object[][] tableData = new Object[types.size()][columnNames.length];
+            double totalPoints = 0.0d;
+            for (i = 0; i < types.size(); i++) {
+                totalPoints += types.get(i).getPoints();
+            }
+            for (i = 0; i < types.size(); i++) {
+                Type curType = types.get(i);
+                tableData[i][0] = curType.getText();
+                tableData[i][1] = String.format("%.2f", new Object[]{Double.valueOf(curType.getPoints())});
+                tableData[i][2] = String.format("%05.2f%%", new Object[]{Double.valueOf((curType.getPoints() / totalPoints) * 100.0d)});
+                if (ranks != null) {
+                    tableData[i][3] = String.format("%.0f%%", new Object[]{Double.valueOf(ranks[curType.getIndex() - 1])});
+                }
+            }
+            this.table = new DefaultTableModel(tableData, columnNames);
+        }
+    }
+
+    final class SummaryWorker extends SwingWorker<Summary, Void> {
+        private final SurveySession session;
+        private final String[] typeNames;
+
+        SummaryWorker(SurveySession session) {
+            this.session = session;
+            this.typeNames = session.getTypeNames();
+        }
+
+        protected Summary doInBackground() {
+            double[] scores = this.session.getScores();
+            List<Result> results = this.session.getResults();
+            ResponseLog log = ResponseLog.getDefault();
+            if (log != null) {
+                try {
+                    log.append(this.session.getSurvey(), this.session.getSeed(), this.session.getAnswers());
+                } catch (IOException e) {
+                    ResultPanel.logger.log(Level.WARNING, "Could not log the responses: " + e.getMessage());
+                }
+            }
+            ArrayList<Type> types = new ArrayList<>();
+            for (int i = 0; i < this.typeNames.length; i++) {
+                types.add(new Type(this.typeNames[i], i + 1, scores[i]));
+            }
+            Collections.sort(types, new 1());
+            return new Summary(types, scores, results, null);
+        }
+
+        protected void done() {
+            Summary summary = (Summary) ResultPanel.this.finished(this);
+            if (summary != null) {
+                ResultPanel.this.display(summary);
+                ResultPanel.this.submit(new ChartWorker(ResultPanel.this.pieChart, summary, true));
+                ResultPanel.this.submit(new ChartWorker(ResultPanel.this.barChart, summary, false));
+                ResultPanel.this.submit(new RankWorker(summary));
+            }
+        }
+    }
+
+    final class RankWorker extends SwingWorker<Summary, Void> {
+        private final Summary summary;
+        private final Survey survey;
+
+        RankWorker(Summary summary) {
+            this.summary = summary;
+            this.survey = ResultPanel.this.survey;
+        }
+
+        protected Summary doInBackground() {
+            double[] ranks = ResultPanel.rank(this.survey, this.summary.scores);
+            if (ranks == null) {
+                return null;
+            }
+            return new Summary(this.summary.types, this.summary.scores, this.summary.results, ranks);
+        }
+
+        protected void done() {
+            Summary ranked = (Summary) ResultPanel.this.finished(this);
+            if (ranked != null) {
+                ResultPanel.this.display(ranked);
+            }
+        }
+    }
+
+    final class ChartWorker extends SwingWorker<JFreeChart, Void> {
+        private final JPanel holder;
+        private final boolean pie;
+        private final Summary summary;
+        private final String title;
+
+        ChartWorker(JPanel holder, Summary summary, boolean pie) {
+            this.holder = holder;
+            this.summary = summary;
+            this.pie = pie;
+            this.title = ResultPanel.this.survey.getTitle();
+        }
+
+        protected JFreeChart doInBackground() {
+            if (this.pie) {
+                return PieChart.createChart("Results", this.summary.names, this.summary.nums);
+            }
+            return BarChart.createChart(BarChart.createDataset(this.summary.names, this.summary.nums, "Chart"), this.title, "Categories", "Points");
+        }
+
+        protected void done() {
+            JFreeChart chart = (JFreeChart) ResultPanel.this.finished(this);
+            if (chart != null) {
+                ChartPanel panel = new ChartPanel(chart);
+                if (this.pie) {
+                    panel.setMouseWheelEnabled(true);
+                } else {
+                    panel.setMouseZoomable(true);
+                }
+                panel.setToolTipText("Right click for more options");
+                ResultPanel.fill(this.holder, panel);
+            }
+        }
+    }
+
     static {
         logger = Logger.getLogger(ResultPanel.class.getName());
     }
 
-    public ResultPanel(MainFrame parent, Survey s) {
-        this.survey = s;
-        this.results = s.getResults();
+    public ResultPanel(MainFrame parent, SurveySession session) {
+        this.survey = session.getSurvey();
         this.parent = parent;
+        this.workers = new ArrayList<>();
         initialize();
         setVisible(true);
+        submit(new SummaryWorker(session));
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "result-panel-" + this.count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private void submit(SwingWorker<?, ?> worker) {
+        this.workers.add(worker);
+        getExecutor().execute(worker);
+    }
+
+    private Object finished(SwingWorker<?, ?> worker) {
+        if (this.workers == null || !this.workers.remove(worker) || worker.isCancelled()) {
+            return null;
+        }
+        try {
+            return worker.get();
+        } catch (InterruptedException e) {
+            return null;
+        } catch (ExecutionException e2) {
+            logger.log(Level.WARNING, "Could not build the results", e2.getCause());
+            return null;
+        }
+    }
+
+    private static double[] rank(Survey survey, double[] scores) {
+        PopulationSketch sketch = SketchStore.load(survey);
+        double[] ranks = null;
+        if (sketch.getRespondentCount() > 0) {
+            ranks = sketch.getRanks(scores);
+        }
+        if (survey.getSource() != null) {
+            PopulationSketch added = new PopulationSketch(survey.compile());
+            added.add(scores);
+            try {
+                SketchStore.merge(survey, added);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not save population sketch: " + e.getMessage());
+            }
+        }
+        return ranks;
+    }
+
+    private static JPanel placeholder(String text) {
+        JPanel holder = new JPanel(new BorderLayout());
+        holder.setBorder(BorderFactory.createBevelBorder(1));
+        JLabel label = new JLabel(text, 0);
+        label.setEnabled(false);
+        holder.add(label, "Center");
+        return holder;
+    }
+
+    private static void fill(JPanel holder, JComponent content) {
+        holder.removeAll();
+        holder.add(content, "Center");
+        holder.revalidate();
+        holder.repaint();
+    }
+
+    private void display(Summary summary) {
+        this.types = summary.types;
+        this.results = summary.results;
+        this.ranks = summary.ranks;
+        this.textArea.setText(summary.text);
+        this.textArea.setCaretPosition(0);
+        this.table.setModel(summary.table);
+        if (this.tableHolder.getComponent(0) != this.tableScroll) {
+            fill(this.tableHolder, this.tableScroll);
+        }
+        this.btnSave.setEnabled(true);
     }
 
     private void initialize() {
-        int i;
         setPreferredSize(new Dimension(800, 600));
         setMinimumSize(getPreferredSize());
         setSize(getPreferredSize());
-        ArrayList<Type> arrayList = new ArrayList(this.survey.getTypes());
-        Collections.sort(arrayList, new 1());
-        int chartSize = Math.min(arrayList.size(), 8);
-        String[] names = new String[chartSize];
-        double[] nums = new double[chartSize];
-        if (arrayList.size() > chartSize) {
-            for (i = 0; i < MAX_CHART_ELEMENTS; i++) {
-                names[i] = ((Type) arrayList.get(i)).getText();
-                nums[i] = ((Type) arrayList.get(i)).getPoints();
-            }
-            names[chartSize - 1] = "Other";
-            nums[chartSize - 1] = 0.0d;
-            for (i = chartSize - 1; i < arrayList.size(); i++) {
-                int i2 = chartSize - 1;
-                nums[i2] = nums[i2] + ((Type) arrayList.get(i)).getPoints();
-            }
-        } else {
-            for (i = 0; i < names.length; i++) {
-                names[i] = ((Type) arrayList.get(i)).getText();
-                nums[i] = ((Type) arrayList.get(i)).getPoints();
-            }
-        }
-        this.pieChart = PieChart.createPieChart(this.survey.getTitle(), "Results", names, nums);
-        this.pieChart.setBorder(BorderFactory.createBevelBorder(1));
+        this.pieChart = placeholder("Drawing chart...");
+        this.pieChart.setToolTipText("Right click for more options");
         JScrollPane jScrollPane = new JScrollPane(this.pieChart);
-        jScrollPane.setToolTipText("Right click for more options");
-        this.barChart = BarChart.createBarChart(nums, names, this.survey.getTitle(), "Categories", "Points", "Chart");
-        this.barChart.setBorder(BorderFactory.createBevelBorder(1));
+        this.barChart = placeholder("Drawing chart...");
+        this.barChart.setToolTipText("Right click for more options");
         JScrollPane barScrollPane = new JScrollPane(this.barChart);
-        barScrollPane.setToolTipText("Right click for more options");
         setBorder(new EmptyBorder(20, 20, 20, 20));
-        StringBuilder resultBuilder = new StringBuilder();
-        resultBuilder.append("Results: \n");
-        for (i = 0; i < this.results.size(); i++) {
-            StringBuilder stringBuilder = resultBuilder;
-            stringBuilder.append(new StringBuilder(String.valueOf(String.format("%d: ", new Object[]{Integer.valueOf(i + 1)}))).append(((Result) this.results.get(i)).getText()).append("\n").toString());
-        }
         setLayout(new BorderLayout(0, 0));
         JPanel contentPanel = new JPanel();
         add(contentPanel, "Center");
@@ -211,41 +426,29 @@ public class ResultPanel extends JPanel {
         JPanel textPanel = new JPanel();
         contentPanel.add(textPanel);
         textPanel.setLayout(new BoxLayout(textPanel, 1));
-        JTextArea textArea = new JTextArea();
-        textArea.setToolTipText("This is the result of the survey based on your decisions");
-        textArea.setFont(new Font("Baskerville Old Face", 0, 20));
-        textArea.setEditable(false);
-        textArea.setWrapStyleWord(true);
-        textArea.setLineWrap(true);
-        textArea.setBackground(getBackground().brighter());
-        textArea.setText(resultBuilder.toString());
-        textArea.setBorder(BorderFactory.createBevelBorder(1));
-        jScrollPane = new JScrollPane(textArea);
-        jScrollPane.setToolTipText("This is the result of the survey based on your decisions");
-        jScrollPane.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
-        textPanel.add(jScrollPane);
+        this.textArea = new JTextArea();
+        this.textArea.setToolTipText("This is the result of the survey based on your decisions");
+        this.textArea.setFont(new Font("Baskerville Old Face", 0, 20));
+        this.textArea.setEditable(false);
+        this.textArea.setWrapStyleWord(true);
+        this.textArea.setLineWrap(true);
+        this.textArea.setBackground(getBackground().brighter());
+        this.textArea.setText("Calculating results...");
+        this.textArea.setBorder(BorderFactory.createBevelBorder(1));
+        JScrollPane textScrollPane = new JScrollPane(this.textArea);
+        textScrollPane.setToolTipText("This is the result of the survey based on your decisions");
+        textPanel.add(textScrollPane);
         textPanel.add(Box.createVerticalStrut(20));
-        String[] columnNames = new String[]{"Category", "Points", "Percentage"};
-        Object[][] tableData = (Object[][]) Array.newInstance(Object.class, new int[]{arrayList.size(), 3});
-        double totalPoints = 0.0d;
-        Iterator it = arrayList.iterator();
-        while (it.hasNext()) {
-            totalPoints += ((Type) it.next()).getPoints();
-        }
-        for (i = 0; i < arrayList.size(); i++) {
-            tableData[i][0] = ((Type) arrayList.get(i)).getText();
-            tableData[i][1] = String.format("%.2f", new Object[]{Double.valueOf(curType.getPoints())});
-            tableData[i][2] = String.format("%05.2f%%", new Object[]{Double.valueOf((curType.getPoints() / totalPoints) * 100.0d)});
-        }
-        this.table = new JTable(tableData, columnNames);
+        this.table = new JTable();
         this.table.setFont(new Font("Baskerville Old Face", 0, 17));
         this.table.setToolTipText("This is the detailed breakdown of the points you scored in the different categories of this survey");
         this.table.setRowHeight((int) (((double) this.table.getFontMetrics(this.table.getFont()).getHeight()) * 1.602d));
         this.table.setBorder(BorderFactory.createBevelBorder(1));
         this.table.setEnabled(false);
-        jScrollPane = new JScrollPane(this.table);
-        jScrollPane.setToolTipText("This is the detailed breakdown of the points you scored in the different categories of this survey");
-        textPanel.add(jScrollPane);
+        this.tableScroll = new JScrollPane(this.table);
+        this.tableScroll.setToolTipText("This is the detailed breakdown of the points you scored in the different categories of this survey");
+        this.tableHolder = placeholder("Calculating results...");
+        textPanel.add(this.tableHolder);
         contentPanel.add(Box.createHorizontalStrut(20));
         JPanel graphPanel = new JPanel();
         contentPanel.add(graphPanel);
@@ -257,10 +460,11 @@ public class ResultPanel extends JPanel {
         ((FlowLayout) buttonPanel.getLayout()).setHgap(10);
         buttonPanel.setSize(800, 50);
         add(buttonPanel, "South");
-        JButton btnSave = new JButton("Save");
-        btnSave.setToolTipText("Click to save the results into a webpage");
-        btnSave.addActionListener(new 2());
-        buttonPanel.add(btnSave);
+        this.btnSave = new JButton("Save");
+        this.btnSave.setToolTipText("Click to save the results into a webpage");
+        this.btnSave.addActionListener(new 2());
+        this.btnSave.setEnabled(false);
+        buttonPanel.add(this.btnSave);
         JButton btnBackToMenu = new JButton("Back to Menu");
         btnBackToMenu.setToolTipText("Click to go back to the menu");
         btnBackToMenu.addActionListener(new 3());
@@ -274,7 +478,14 @@ public class ResultPanel extends JPanel {
     public void dispose() {
         setVisible(false);
         setEnabled(false);
+        if (this.workers != null) {
+            for (int i = 0; i < this.workers.size(); i++) {
+                ((SwingWorker) this.workers.get(i)).cancel(false);
+            }
+            this.workers = null;
+        }
         this.results = null;
+        this.types = null;
         this.survey = null;
         this.parent = null;
     }
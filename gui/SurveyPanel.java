@@ -1,22 +1,26 @@
 package gui;
 
+import common.LiveScore;
+import common.LiveScore.Listener;
 import common.Question;
+import common.Result;
 import common.Survey;
+import common.SurveySession;
 import common.Util;
-import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JButton;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import net.miginfocom.swing.MigLayout;
 
@@ -26,10 +30,12 @@ public class SurveyPanel extends JPanel implements KeyListener {
     private JButton btnNext;
     private JButton btnPrevious;
     private JButton btnSubmitAnswers;
-    private Question displayedQuestion;
+    private ChoicePanel current;
+    private JLabel lblPreview;
     private MainFrame parent;
-    private HashMap<Question, ChoicePanel> questions;
-    private Survey survey;
+    private ChoicePanel prefetched;
+    private Listener preview;
+    private SurveySession session;
     private JTextArea textArea;
 
     class 1 implements ActionListener {
@@ -53,7 +59,7 @@ public class SurveyPanel extends JPanel implements KeyListener {
         }
 
         public void actionPerformed(ActionEvent e) {
-            Question q = SurveyPanel.this.survey.getNextQuestion();
+            Question q = SurveyPanel.this.session.getNextQuestion();
             if (q != null) {
                 this.val$cur.setContent(q);
             } else {
@@ -70,7 +76,7 @@ public class SurveyPanel extends JPanel implements KeyListener {
         }
 
         public void actionPerformed(ActionEvent e) {
-            Question q = SurveyPanel.this.survey.getPrevQuestion();
+            Question q = SurveyPanel.this.session.getPrevQuestion();
             if (q != null) {
                 this.val$cur.setContent(q);
             } else {
@@ -87,22 +93,16 @@ public class SurveyPanel extends JPanel implements KeyListener {
         }
 
         public void actionPerformed(ActionEvent e) {
-            int i;
-            ArrayList<Question> questions = SurveyPanel.this.survey.getQuestionArray();
+            SurveySession session = SurveyPanel.this.session;
             LinkedList<Integer> missedQuestions = new LinkedList();
-            for (i = 0; i < questions.size(); i++) {
-                ChoicePanel c = (ChoicePanel) SurveyPanel.this.questions.get(questions.get(i));
-                if (c == null) {
-                    missedQuestions.add(Integer.valueOf(i + 1));
-                } else if (c.getSelectedChoce() == null) {
+            int[] answers = session.getAnswers();
+            for (int i = 0; i < session.getQuestionCount(); i++) {
+                if (answers[session.getQuestionIndex(i)] < 0) {
                     missedQuestions.add(Integer.valueOf(i + 1));
                 }
             }
             if (missedQuestions.isEmpty()) {
-                for (i = 0; i < questions.size(); i++) {
-                    SurveyPanel.this.survey.choose(((ChoicePanel) SurveyPanel.this.questions.get(questions.get(i))).getSelectedChoce());
-                }
-                SurveyPanel.this.parent.addContent(new ResultPanel(SurveyPanel.this.parent, SurveyPanel.this.survey));
+                SurveyPanel.this.parent.addContent(new ResultPanel(SurveyPanel.this.parent, session));
                 SurveyPanel.this.parent.removeKeyListener(this.val$cur);
                 SurveyPanel.this.parent.removeContent(this.val$cur);
                 this.val$cur.dispose();
@@ -121,9 +121,13 @@ public class SurveyPanel extends JPanel implements KeyListener {
             throw new IllegalArgumentException("Invalid survey!");
         }
         this.parent = parent;
-        this.survey = survey;
-        this.questions = new HashMap();
-        this.displayedQuestion = null;
+        try {
+            this.session = survey.newSession();
+        } catch (IllegalArgumentException e) {
+            Util.showError("Invalid survey: " + e.getMessage());
+            throw e;
+        }
+        logger.log(Level.INFO, "Started " + survey.getTitle() + " with seed " + this.session.getSeed());
         initialize();
         setVisible(true);
     }
@@ -158,7 +162,16 @@ public class SurveyPanel extends JPanel implements KeyListener {
         this.btnBackToMenu.setToolTipText("Go back to the menu");
         this.btnBackToMenu.addKeyListener(this);
         add(this.btnBackToMenu, "cell 11 12,growx");
-        setContent(this.survey.getQuestion());
+        this.lblPreview = new JLabel(" ");
+        this.lblPreview.setToolTipText("Results matching the answers given so far");
+        add(this.lblPreview, "cell 0 10 7 1");
+        this.preview = new Listener() {
+            public void scoreChanged(LiveScore score, int question) {
+                SurveyPanel.this.updatePreview();
+            }
+        };
+        this.session.getLiveScore().addListener(this.preview);
+        setContent(this.session.getQuestion());
         addActions();
         this.parent.addKeyListener(this);
         addKeyListener(this);
@@ -171,34 +184,79 @@ public class SurveyPanel extends JPanel implements KeyListener {
         this.btnSubmitAnswers.addActionListener(new 4(this));
     }
 
+    private void updatePreview() {
+        if (this.session == null) {
+            return;
+        }
+        LiveScore live = this.session.getLiveScore();
+        if (live.getAnsweredCount() == 0) {
+            this.lblPreview.setText(" ");
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Answered %d/%d, leaning towards %s", new Object[]{Integer.valueOf(live.getAnsweredCount()), Integer.valueOf(this.session.getQuestionCount()), live.getSurvey().getTypeName(live.getLeadingType())}));
+        List<Result> results = live.getResults();
+        if (!results.isEmpty()) {
+            sb.append(": ").append(firstLine(results.get(0).getText()));
+            if (results.size() > 1) {
+                sb.append(String.format(" (+%d more)", new Object[]{Integer.valueOf(results.size() - 1)}));
+            }
+        }
+        this.lblPreview.setText(sb.toString());
+    }
+
+    private static String firstLine(String text) {
+        int end = text.indexOf('\n');
+        return end < 0 ? text : text.substring(0, end);
+    }
+
     private void setContent(Question q) {
         if (q != null) {
-            this.textArea.setText(new StringBuilder(String.valueOf(String.format("%d/%d: ", new Object[]{Integer.valueOf(this.survey.getIndex() + 1), Integer.valueOf(this.survey.getQuestionSize())}))).append(q.getText()).toString());
-            if (this.displayedQuestion != null) {
-                remove((Component) this.questions.get(this.displayedQuestion));
-                ((ChoicePanel) this.questions.get(this.displayedQuestion)).setVisible(false);
-                logger.log(Level.INFO, "Removed panel " + this.questions.get(this.displayedQuestion));
+            this.textArea.setText(new StringBuilder(String.valueOf(String.format("%d/%d: ", new Object[]{Integer.valueOf(this.session.getPosition() + 1), Integer.valueOf(this.session.getQuestionCount())}))).append(q.getText()).toString());
+            if (this.current != null) {
+                remove(this.current);
+                this.current.setVisible(false);
+                this.current.removeKeyListener(this);
+                logger.log(Level.FINE, "Removed panel " + this.current);
             }
-            ChoicePanel curPanel = (ChoicePanel) this.questions.get(q);
-            if (curPanel == null) {
-                curPanel = new ChoicePanel(this.survey, q);
-                this.questions.put(q, curPanel);
+            ChoicePanel curPanel = this.prefetched;
+            if (curPanel == null || curPanel.getQuestion() != q) {
+                curPanel = new ChoicePanel(this.session, q);
             }
+            this.prefetched = null;
             add(curPanel, "cell 0 4 7 5");
             curPanel.setVisible(true);
             curPanel.repaint();
             curPanel.addKeyListener(this);
             revalidate();
             this.parent.setMinimumSize(getPreferredSize());
-            this.displayedQuestion = q;
+            this.current = curPanel;
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    SurveyPanel.this.prefetch();
+                }
+            });
+        }
+    }
+
+    private void prefetch() {
+        if (this.session != null && this.prefetched == null) {
+            int next = this.session.getPosition() + 1;
+            if (next < this.session.getQuestionCount()) {
+                this.prefetched = new ChoicePanel(this.session, this.session.getQuestionAt(next));
+            }
         }
     }
 
     public void dispose() {
+        if (this.session != null && this.preview != null) {
+            this.session.getLiveScore().removeListener(this.preview);
+        }
+        this.preview = null;
         removeAll();
-        this.questions.clear();
-        this.displayedQuestion = null;
-        this.survey = null;
+        this.current = null;
+        this.prefetched = null;
+        this.session = null;
         this.parent = null;
         setVisible(false);
         setEnabled(false);
@@ -210,8 +268,8 @@ public class SurveyPanel extends JPanel implements KeyListener {
             if (choice == 0) {
                 choice += 10;
             }
-            if (choice <= this.displayedQuestion.getChoices().size()) {
-                ((ChoicePanel) this.questions.get(this.displayedQuestion)).select(choice - 1);
+            if (this.current != null && choice <= this.current.getChoiceCount()) {
+                this.current.select(choice - 1);
             }
         } else if (e.getKeyChar() == '\n') {
             this.btnSubmitAnswers.doClick();
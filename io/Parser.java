@@ -1,70 +1,231 @@
 package io;
 
 import common.Survey;
+import common.SurveyCodec;
+import common.SurveyCodec.Header;
+import common.SurveyFormatException;
+import common.SurveyReader;
 import common.Util;
+import io.SurveyLoader.LoadError;
+import io.SurveyLoader.Listener;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Parser {
+    public static final String BINARY_EXTENSION = ".svb";
+    public static final Charset CHARSET;
     public static final FileFilter fileFilter;
     private static Logger logger;
 
-    class 1 implements FileFilter {
-        1() {
-        }
+    static {
+        logger = Logger.getLogger(Parser.class.getName());
+        CHARSET = Charset.forName("UTF-8");
+        fileFilter = new FileFilter() {
+            public boolean accept(File pathname) {
+                return pathname.getName().endsWith(".txt");
+            }
+        };
+    }
 
-        public boolean accept(File pathname) {
-            return pathname.getName().endsWith(".txt");
+    public static String slurp(File file) throws IOException {
+        char[] buffer = new char[8192];
+        Reader in = new InputStreamReader(new FileInputStream(file), CHARSET);
+        try {
+            StringBuilder sb = new StringBuilder((int) file.length());
+            while (true) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    break;
+                }
+                sb.append(buffer, 0, n);
+            }
+            return sb.toString();
+        } finally {
+            in.close();
         }
     }
 
-    static {
-        logger = Logger.getLogger(Parser.class.getName());
-        fileFilter = new 1();
+    public static CharBuffer map(File file, Charset charset) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size > 2147483647L) {
+                throw new IOException(file.getAbsolutePath() + " is too large to be a survey!");
+            }
+            MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, 0, size);
+            CharBuffer chars = decode(bytes, charset);
+            if (chars.remaining() > 0 && chars.get(chars.position()) == '\uFEFF') {
+                chars.position(chars.position() + 1);
+            }
+            return chars;
+        } finally {
+            in.close();
+        }
     }
 
-    public static String slurp(File file) throws IOException {
-        char[] buffer = new char[((int) file.length())];
-        Reader in = new FileReader(file);
-        StringBuilder sb = new StringBuilder((int) file.length());
-        while (in.read(buffer) > 0) {
-            sb.append(buffer);
+    private static CharBuffer decode(ByteBuffer bytes, Charset charset) throws CharacterCodingException {
+        CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer chars = CharBuffer.allocate((int) Math.ceil(((double) bytes.remaining()) * ((double) decoder.maxCharsPerByte())));
+        CoderResult result = decoder.decode(bytes, chars, true);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        result = decoder.flush(chars);
+        if (!result.isUnderflow()) {
+            result.throwException();
         }
-        in.close();
-        return sb.toString();
+        chars.flip();
+        return chars;
     }
 
-    public static Survey readSurvey(File file) throws IOException {
-        Survey s = Survey.parse(slurp(file));
-        if (s == null) {
-            Util.showError("Format error for file at " + file.getAbsolutePath() + " !");
+    public static Survey parseSurvey(File file) throws IOException {
+        File binary = binaryFile(file);
+        long length = file.length();
+        long modified = file.lastModified();
+        if (binary.isFile()) {
+            try {
+                ByteBuffer bytes = readBytes(binary);
+                Header header = SurveyCodec.readHeader(bytes);
+                if (header.getSourceLength() == length && header.getSourceModified() == modified) {
+                    Survey s = SurveyCodec.decode(bytes);
+                    s.setSource(file);
+                    return s;
+                }
+            } catch (IOException e) {
+                logger.log(Level.INFO, "Ignoring " + binary.getAbsolutePath() + ": " + e.getMessage());
+            }
         }
+        Survey s = parseSurvey(file, CHARSET);
+        s.setSource(file);
+        writeBinary(s, binary, length, modified);
         return s;
     }
 
-    public static Survey[] readAll(File dir) throws IOException, IllegalArgumentException {
-        if (dir.isFile()) {
-            throw new IllegalArgumentException("File given as argument instead of directory!");
-        }
-        File[] files = dir.listFiles(fileFilter);
-        if (files == null) {
-            throw new IOException("Error reading files from " + dir.getAbsolutePath());
+    public static File binaryFile(File file) {
+        return siblingFile(file, BINARY_EXTENSION);
+    }
+
+    public static File siblingFile(File file, String extension) {
+        String name = file.getName();
+        if (name.endsWith(".txt")) {
+            name = name.substring(0, name.length() - 4);
         }
-        Survey[] surveys = new Survey[files.length];
-        for (int i = 0; i < files.length; i++) {
-            logger.log(Level.INFO, "Reading " + files[i].getAbsolutePath());
+        return new File(file.getAbsoluteFile().getParentFile(), name + extension);
+    }
+
+    public static void writeBinary(Survey survey, File binary, long sourceLength, long sourceModified) {
+        File tmp = new File(binary.getPath() + ".tmp");
+        try {
+            ByteBuffer bytes = SurveyCodec.encode(survey, sourceLength, sourceModified);
+            FileOutputStream out = new FileOutputStream(tmp);
             try {
-                surveys[i] = readSurvey(files[i]);
-            } catch (Exception e) {
-                System.err.println("Error occurred while reading the maze@" + files[i].getAbsolutePath() + ":");
-                e.printStackTrace();
+                FileChannel channel = out.getChannel();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(binary)) {
+                binary.delete();
+                if (!tmp.renameTo(binary)) {
+                    throw new IOException("Could not rename " + tmp.getAbsolutePath());
+                }
+            }
+        } catch (Exception e) {
+            tmp.delete();
+            logger.log(Level.INFO, "Could not write " + binary.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    private static ByteBuffer readBytes(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size > 2147483647L) {
+                throw new IOException(file.getAbsolutePath() + " is too large to be a survey!");
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+            }
+            bytes.flip();
+            return bytes;
+        } finally {
+            in.close();
+        }
+    }
+
+    public static String readTitle(File file) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(file), CHARSET.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT));
+        try {
+            return new SurveyReader(in).readTitle();
+        } finally {
+            in.close();
+        }
+    }
+
+    public static Survey parseSurvey(File file, Charset charset) throws IOException {
+        return Survey.parse(map(file, charset));
+    }
+
+    public static Survey readSurvey(File file) throws IOException {
+        try {
+            return parseSurvey(file);
+        } catch (SurveyFormatException e) {
+            Util.showError("Format error for file at " + file.getAbsolutePath() + ":\n" + e.getMessage());
+            return null;
+        } catch (CharacterCodingException e2) {
+            Util.showError("File at " + file.getAbsolutePath() + " is not a " + CHARSET.name() + " text file!");
+            return null;
+        }
+    }
+
+    public static Survey[] readAll(File dir) throws IOException, IllegalArgumentException {
+        File[] files = SurveyLoader.listSurveys(dir);
+        final HashMap<File, Survey> loaded = new HashMap<>();
+        try {
+            SurveyLoader.getDefault().load(files, new Listener() {
+                public void loaded(File file, Survey survey) {
+                    loaded.put(file, survey);
+                }
+
+                public void failed(LoadError error) {
+                    Parser.logger.log(Level.WARNING, "Could not read " + error.getFile().getAbsolutePath() + ": " + error.getMessage());
+                }
+            });
+            ArrayList<Survey> surveys = new ArrayList<>();
+            for (int i = 0; i < files.length; i++) {
+                Survey s = loaded.get(files[i]);
+                if (s != null) {
+                    surveys.add(s);
+                }
             }
+            return surveys.toArray(new Survey[surveys.size()]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + dir.getAbsolutePath());
         }
-        return surveys;
     }
 }
@@ -0,0 +1,170 @@
+package io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ReportTemplate {
+    private static final int LITERAL = 0;
+    private static final int RAW = 2;
+    private static final int SECTION = 3;
+    private static final int VALUE = 1;
+    private final Node[] nodes;
+
+    private static class Node {
+        final Node[] children;
+        final String text;
+        final int type;
+
+        Node(int type, String text, Node[] children) {
+            this.type = type;
+            this.text = text;
+            this.children = children;
+        }
+    }
+
+    private ReportTemplate(Node[] nodes) {
+        this.nodes = nodes;
+    }
+
+    public static ReportTemplate compile(String template) {
+        int[] pos = new int[]{0};
+        Node[] nodes = parse(template, pos, null);
+        return new ReportTemplate(nodes);
+    }
+
+    private static Node[] parse(String template, int[] pos, String section) {
+        ArrayList<Node> res = new ArrayList<>();
+        while (pos[0] < template.length()) {
+            int open = template.indexOf("{{", pos[0]);
+            if (open < 0) {
+                res.add(new Node(LITERAL, template.substring(pos[0]), null));
+                pos[0] = template.length();
+                break;
+            }
+            if (open > pos[0]) {
+                res.add(new Node(LITERAL, template.substring(pos[0], open), null));
+            }
+            boolean raw = template.startsWith("{{{", open);
+            String close = raw ? "}}}" : "}}";
+            int end = template.indexOf(close, open);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unterminated tag at offset " + open);
+            }
+            String tag = template.substring(open + (raw ? 3 : 2), end).trim();
+            pos[0] = close.length() + end;
+            if (raw) {
+                res.add(new Node(RAW, tag, null));
+            } else if (tag.startsWith("#")) {
+                String name = tag.substring(1).trim();
+                res.add(new Node(SECTION, name, parse(template, pos, name)));
+            } else if (!tag.startsWith("/")) {
+                res.add(new Node(VALUE, tag, null));
+            } else if (tag.substring(1).trim().equals(section)) {
+                return res.toArray(new Node[res.size()]);
+            } else {
+                throw new IllegalArgumentException("Unexpected closing tag {{" + tag + "}} at offset " + open);
+            }
+        }
+        if (section == null) {
+            return res.toArray(new Node[res.size()]);
+        }
+        throw new IllegalArgumentException("Section {{#" + section + "}} is not closed");
+    }
+
+    public void render(Map<String, Object> model, Writer out) throws IOException {
+        ArrayList<Map<?, ?>> scopes = new ArrayList<>();
+        scopes.add(model);
+        render(this.nodes, scopes, out);
+    }
+
+    private static void render(Node[] nodes, ArrayList<Map<?, ?>> scopes, Writer out) throws IOException {
+        for (int i = 0; i < nodes.length; i++) {
+            Node n = nodes[i];
+            Object value;
+            switch (n.type) {
+                case LITERAL:
+                    out.write(n.text);
+                    break;
+                case VALUE:
+                    value = lookup(scopes, n.text);
+                    if (value != null) {
+                        escape(String.valueOf(value), out);
+                    }
+                    break;
+                case RAW:
+                    value = lookup(scopes, n.text);
+                    if (value != null) {
+                        out.write(String.valueOf(value));
+                    }
+                    break;
+                case SECTION:
+                    value = lookup(scopes, n.text);
+                    if (value instanceof List) {
+                        List<?> rows = (List<?>) value;
+                        for (int j = 0; j < rows.size(); j++) {
+                            Object row = rows.get(j);
+                            if (row instanceof Map) {
+                                scopes.add((Map<?, ?>) row);
+                                render(n.children, scopes, out);
+                                scopes.remove(scopes.size() - 1);
+                            } else {
+                                render(n.children, scopes, out);
+                            }
+                        }
+                    } else if (value instanceof Map) {
+                        scopes.add((Map<?, ?>) value);
+                        render(n.children, scopes, out);
+                        scopes.remove(scopes.size() - 1);
+                    } else if (!(value == null || Boolean.FALSE.equals(value))) {
+                        render(n.children, scopes, out);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static Object lookup(ArrayList<Map<?, ?>> scopes, String key) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Map<?, ?> scope = scopes.get(i);
+            if (scope.containsKey(key)) {
+                return scope.get(key);
+            }
+        }
+        return null;
+    }
+
+    public static void escape(String s, Writer out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            String entity;
+            switch (s.charAt(i)) {
+                case '"':
+                    entity = "&quot;";
+                    break;
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '\'':
+                    entity = "&#39;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                default:
+                    continue;
+            }
+            out.write(s, start, i - start);
+            out.write(entity);
+            start = i + 1;
+        }
+        out.write(s, start, s.length() - start);
+    }
+}
@@ -0,0 +1,227 @@
+package io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ReportWriter {
+    private static final int BUFFER_SIZE = 32768;
+    public static final String DEFAULT_TEMPLATE = "<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>{{title}}</title>\n<style>\nbody { font-family: sans-serif; margin: 2em; }\ntable { border-collapse: collapse; }\ntd, th { border: 1px solid #999; padding: 0.3em 0.8em; }\ntd.num { text-align: right; }\n</style>\n</head>\n<body>\n<h1>{{title}}</h1>\n<h2>Results</h2>\n<ol>\n{{#results}}<li>{{text}}</li>\n{{/results}}</ol>\n<h2>Points breakdown</h2>\n<table>\n<tr><th>Category</th><th>Points</th><th>Percentage</th></tr>\n{{#types}}<tr><td>{{name}}</td><td class=\"num\">{{points}}</td><td class=\"num\">{{percent}}</td></tr>\n{{/types}}</table>\n{{#charts}}<p><img src=\"{{{uri}}}\" alt=\"{{title}}\"></p>\n{{/charts}}{{#website}}<p>For more information, click <a href=\"{{link}}\">here</a></p>\n{{/website}}</body>\n</html>\n";
+    private static ReportWriter defaultWriter;
+    private final ReportTemplate template;
+
+    public static class Report {
+        final ArrayList<String> charts;
+        final List<String> results;
+        final double[] scores;
+        final String title;
+        final String[] typeNames;
+        String website;
+
+        public Report(String title, String[] typeNames, double[] scores, List<String> results) {
+            this.title = title;
+            this.typeNames = typeNames;
+            this.scores = scores;
+            this.results = results;
+            this.charts = new ArrayList<>();
+        }
+
+        public void setWebsite(String website) {
+            this.website = website;
+        }
+
+        public void addChart(byte[] png) {
+            this.charts.add("data:image/png;base64," + Base64.getEncoder().encodeToString(png));
+        }
+    }
+
+    public static class Batch {
+        private final File dir;
+        private final HashSet<String> names;
+        private final ReportWriter writer;
+        private final ZipOutputStream zip;
+        private final Writer zipWriter;
+
+        Batch(ReportWriter writer, File target) throws IOException {
+            this.writer = writer;
+            this.names = new HashSet<>();
+            if (target.getName().toLowerCase().endsWith(".zip")) {
+                this.dir = null;
+                this.zip = new ZipOutputStream(new FileOutputStream(target));
+                this.zipWriter = new BufferedWriter(new OutputStreamWriter(this.zip, Parser.CHARSET), BUFFER_SIZE);
+                return;
+            }
+            if (target.isDirectory() || target.mkdirs()) {
+                this.dir = target;
+                this.zip = null;
+                this.zipWriter = null;
+                return;
+            }
+            throw new IOException("Could not create report directory " + target.getAbsolutePath());
+        }
+
+        public String add(String name, Report report) throws IOException {
+            String file = reserve(name);
+            write(file, report);
+            return file;
+        }
+
+        public synchronized String reserve(String name) {
+            return uniqueName(name);
+        }
+
+        public void write(String file, Report report) throws IOException {
+            if (this.zip != null) {
+                synchronized (this) {
+                    this.zip.putNextEntry(new ZipEntry(file));
+                    this.writer.write(report, this.zipWriter);
+                    this.zipWriter.flush();
+                    this.zip.closeEntry();
+                }
+                return;
+            }
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(this.dir, file)), Parser.CHARSET), BUFFER_SIZE);
+            try {
+                this.writer.write(report, out);
+            } finally {
+                out.close();
+            }
+        }
+
+        private String uniqueName(String name) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < name.length() && sb.length() < 100; i++) {
+                char c = name.charAt(i);
+                sb.append((Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.') ? c : '_');
+            }
+            if (sb.length() == 0 || sb.charAt(0) == '.') {
+                sb.insert(0, "report");
+            }
+            String base = sb.toString();
+            String res = base + ".html";
+            int n = 2;
+            while (!this.names.add(res.toLowerCase())) {
+                res = base + "-" + n + ".html";
+                n++;
+            }
+            return res;
+        }
+
+        public synchronized int size() {
+            return this.names.size();
+        }
+
+        public synchronized void close() throws IOException {
+            if (this.zip != null) {
+                this.zip.close();
+            }
+        }
+    }
+
+    public ReportWriter() {
+        this(ReportTemplate.compile(DEFAULT_TEMPLATE));
+    }
+
+    public ReportWriter(ReportTemplate template) {
+        this.template = template;
+    }
+
+    public static synchronized ReportWriter getDefault() {
+        if (defaultWriter == null) {
+            defaultWriter = new ReportWriter();
+        }
+        return defaultWriter;
+    }
+
+    public void write(Report report, Writer out) throws IOException {
+        this.template.render(model(report), out);
+    }
+
+    public void write(Report report, File file) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Parser.CHARSET), BUFFER_SIZE);
+        try {
+            write(report, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    public void write(Report report, OutputStream out) throws IOException {
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, Parser.CHARSET), BUFFER_SIZE);
+        write(report, w);
+        w.flush();
+    }
+
+    public Batch openBatch(File target) throws IOException {
+        return new Batch(this, target);
+    }
+
+    private static HashMap<String, Object> model(Report report) {
+        int i;
+        HashMap<String, Object> model = new HashMap<>();
+        model.put("title", report.title);
+        ArrayList<HashMap<String, Object>> results = new ArrayList<>();
+        for (i = 0; i < report.results.size(); i++) {
+            HashMap<String, Object> row = new HashMap<>();
+            row.put("rank", Integer.valueOf(i + 1));
+            row.put("text", report.results.get(i));
+            results.add(row);
+        }
+        model.put("results", results);
+        final double[] scores = report.scores;
+        Integer[] order = new Integer[scores.length];
+        double total = 0.0d;
+        for (i = 0; i < order.length; i++) {
+            order[i] = Integer.valueOf(i);
+            total += scores[i];
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(scores[b.intValue()], scores[a.intValue()]);
+            }
+        });
+        ArrayList<HashMap<String, Object>> types = new ArrayList<>();
+        for (i = 0; i < order.length; i++) {
+            int t = order[i].intValue();
+            HashMap<String, Object> row = new HashMap<>();
+            row.put("name", report.typeNames[t]);
+            row.put("points", String.format("%.2f", new Object[]{Double.valueOf(scores[t])}));
+            row.put("percent", String.format("%05.2f%%", new Object[]{Double.valueOf((scores[t] / total) * 100.0d)}));
+            types.add(row);
+        }
+        model.put("types", types);
+        ArrayList<HashMap<String, Object>> charts = new ArrayList<>();
+        for (i = 0; i < report.charts.size(); i++) {
+            HashMap<String, Object> row = new HashMap<>();
+            row.put("uri", report.charts.get(i));
+            charts.add(row);
+        }
+        model.put("charts", charts);
+        if (report.website != null && report.website.length() > 0) {
+            HashMap<String, Object> website = new HashMap<>();
+            website.put("link", link(report.website));
+            model.put("website", website);
+        }
+        return model;
+    }
+
+    static String link(String website) {
+        if (website.startsWith("http://") || website.startsWith("https://")) {
+            return website;
+        }
+        return "http://" + website;
+    }
+}
@@ -0,0 +1,345 @@
+package io;
+
+import common.Survey;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+public class ResponseLog implements Closeable {
+    static final int BATCH_HEADER_SIZE = 12;
+    private static final int BATCH_BYTES = 65536;
+    public static final File DEFAULT_FILE = new File("./responses.log");
+    static final int HEADER_SIZE = 16;
+    private static final long LINGER_MILLIS = 2;
+    public static final int MAGIC = 0x524c4f47;
+    private static final int MAX_PENDING_BYTES = 1048576;
+    private static final int MAX_RECORD_BYTES = 1048576;
+    static final int MAX_BATCH_BYTES = MAX_PENDING_BYTES + MAX_RECORD_BYTES;
+    private static final int MIN_RECORD_BYTES = 13;
+    public static final int VERSION = 1;
+    private static ResponseLog defaultLog;
+    private static boolean defaultUnavailable;
+    private static Logger logger;
+    private long appended;
+    private final FileChannel channel;
+    private boolean closed;
+    private final CRC32 crc;
+    private long durable;
+    private IOException failure;
+    private final File file;
+    private final Thread flusher;
+    private final boolean force;
+    private ByteBuffer pending;
+    private int pendingCount;
+    private ByteBuffer spare;
+
+    static {
+        logger = Logger.getLogger(ResponseLog.class.getName());
+    }
+
+    public ResponseLog(File file, boolean force) throws IOException {
+        this.file = file;
+        this.force = force;
+        this.crc = new CRC32();
+        this.pending = ByteBuffer.allocate(BATCH_BYTES * 2);
+        this.spare = ByteBuffer.allocate(BATCH_BYTES * 2);
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            if (lock() == null) {
+                throw new IOException(file.getAbsolutePath() + " is in use by another process");
+            }
+            recover();
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+        this.flusher = new Thread(new Runnable() {
+            public void run() {
+                ResponseLog.this.flushLoop();
+            }
+        }, "response-log-" + file.getName());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static synchronized ResponseLog getDefault() {
+        if (defaultLog == null && !defaultUnavailable) {
+            try {
+                defaultLog = new ResponseLog(DEFAULT_FILE, true);
+            } catch (IOException e) {
+                defaultUnavailable = true;
+                logger.log(Level.WARNING, "Responses will not be logged: " + e.getMessage());
+                return null;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        ResponseLog.defaultLog.close();
+                    } catch (IOException e) {
+                        ResponseLog.logger.log(Level.WARNING, "Could not close " + ResponseLog.DEFAULT_FILE.getAbsolutePath() + ": " + e.getMessage());
+                    }
+                }
+            }, "response-log-close"));
+        }
+        return defaultLog;
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    private void recover() throws IOException {
+        long size = this.channel.size();
+        if (size < HEADER_SIZE) {
+            if (size > 0) {
+                logger.log(Level.WARNING, "Rewriting the header of " + this.file.getAbsolutePath());
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).flip();
+            this.channel.truncate(0);
+            write(header, 0);
+            this.channel.force(true);
+            this.channel.position(HEADER_SIZE);
+            return;
+        }
+        ResponseLogReader reader = new ResponseLogReader(this.channel, this.file);
+        long end = reader.validEnd();
+        if (end < size) {
+            if (reader.getLastCorruptOffset() >= end) {
+                File rest = new File(this.file.getPath() + "." + end + ".corrupt");
+                copy(end, size, rest);
+                logger.log(Level.SEVERE, "Corrupt batches after offset " + end + " of " + this.file.getAbsolutePath() + ", moved the last " + (size - end) + " bytes to " + rest.getAbsolutePath());
+            } else {
+                logger.log(Level.WARNING, "Dropping " + (size - end) + " bytes of an unfinished batch at the end of " + this.file.getAbsolutePath());
+            }
+            this.channel.truncate(end);
+            this.channel.force(true);
+        }
+        if (reader.getCorruptOffset() >= 0 && reader.getCorruptOffset() < end) {
+            logger.log(Level.SEVERE, this.file.getAbsolutePath() + " has corrupt batches from offset " + reader.getCorruptOffset() + ", readers will skip them");
+        }
+        this.channel.position(end);
+    }
+
+    static boolean isPlausibleBatch(int length, int count) {
+        return count > 0 && length <= MAX_BATCH_BYTES && ((long) count) * ((long) MIN_RECORD_BYTES) <= ((long) length);
+    }
+
+    private FileLock lock() throws IOException {
+        try {
+            return this.channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private void copy(long from, long to, File target) throws IOException {
+        FileOutputStream out = new FileOutputStream(target);
+        try {
+            FileChannel dest = out.getChannel();
+            while (from < to) {
+                from += this.channel.transferTo(from, to - from, dest);
+            }
+            dest.force(true);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void write(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += (long) this.channel.write(buf, position);
+        }
+    }
+
+    public long append(Survey survey, long seed, int[] answers) throws IOException {
+        return append(survey.getFingerprint(), seed, answers);
+    }
+
+    public synchronized long append(int surveyId, long seed, int[] answers) throws IOException {
+        int i;
+        while (this.failure == null && !this.closed && this.pending.position() >= MAX_PENDING_BYTES) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while appending to " + this.file.getAbsolutePath());
+            }
+        }
+        check();
+        int size = 17 + (answers.length * 5);
+        if (answers.length > (MAX_RECORD_BYTES - 17) / 5) {
+            throw new IllegalArgumentException("Too many answers for one record: " + answers.length);
+        }
+        for (i = 0; i < answers.length; i++) {
+            if (answers[i] < -1) {
+                throw new IllegalArgumentException("Invalid answer " + answers[i] + " for question " + (i + 1));
+            }
+        }
+        if (this.pending.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(this.pending.capacity() * 2, this.pending.position() + size));
+            this.pending.flip();
+            grown.put(this.pending);
+            this.pending = grown;
+        }
+        this.pending.putInt(surveyId);
+        this.pending.putLong(seed);
+        putVarint(this.pending, answers.length);
+        for (i = 0; i < answers.length; i++) {
+            putVarint(this.pending, answers[i] + 1);
+        }
+        this.pendingCount++;
+        this.appended++;
+        if (this.pendingCount == 1 || this.pending.position() >= BATCH_BYTES) {
+            notifyAll();
+        }
+        return this.appended;
+    }
+
+    static void putVarint(ByteBuffer buf, int v) {
+        while ((v & -128) != 0) {
+            buf.put((byte) ((v & 127) | 128));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    public synchronized void await(long sequence) throws IOException {
+        while (this.durable < sequence && this.failure == null) {
+            if (this.closed && !this.flusher.isAlive()) {
+                break;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + this.file.getAbsolutePath());
+            }
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+        if (this.durable < sequence) {
+            throw new IOException(this.file.getAbsolutePath() + " was closed before record " + sequence + " was written");
+        }
+    }
+
+    public void flush() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = this.appended;
+        }
+        await(sequence);
+    }
+
+    public synchronized long getAppendedCount() {
+        return this.appended;
+    }
+
+    public synchronized long getDurableCount() {
+        return this.durable;
+    }
+
+    private void check() throws IOException {
+        if (this.failure != null) {
+            throw this.failure;
+        }
+        if (this.closed) {
+            throw new IOException(this.file.getAbsolutePath() + " is closed");
+        }
+    }
+
+    private void flushLoop() {
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+        while (true) {
+            ByteBuffer batch;
+            int count;
+            long sequence;
+            synchronized (this) {
+                while (this.pendingCount == 0 && !this.closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                    }
+                }
+                if (this.pendingCount == 0) {
+                    notifyAll();
+                    return;
+                }
+                long deadline = System.currentTimeMillis() + LINGER_MILLIS;
+                long now = System.currentTimeMillis();
+                while (!this.closed && this.pending.position() < BATCH_BYTES && now < deadline) {
+                    try {
+                        wait(deadline - now);
+                    } catch (InterruptedException e2) {
+                    }
+                    now = System.currentTimeMillis();
+                }
+                batch = this.pending;
+                this.pending = this.spare;
+                this.spare = batch;
+                this.pending.clear();
+                count = this.pendingCount;
+                this.pendingCount = 0;
+                sequence = this.appended;
+                notifyAll();
+            }
+            batch.flip();
+            this.crc.reset();
+            this.crc.update(batch.duplicate());
+            header.clear();
+            header.putInt(batch.remaining()).putInt(count).putInt((int) this.crc.getValue()).flip();
+            try {
+                long position = this.channel.position();
+                write(header, position);
+                write(batch, position + BATCH_HEADER_SIZE);
+                this.channel.position(position + BATCH_HEADER_SIZE + ((long) batch.limit()));
+                if (this.force) {
+                    this.channel.force(false);
+                }
+            } catch (IOException e3) {
+                synchronized (this) {
+                    this.failure = e3;
+                    notifyAll();
+                }
+                logger.log(Level.SEVERE, "Could not write " + this.file.getAbsolutePath(), e3);
+                return;
+            }
+            synchronized (this) {
+                this.durable = sequence;
+                notifyAll();
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            notifyAll();
+        }
+        try {
+            this.flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.channel.close();
+        synchronized (this) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+        }
+    }
+}
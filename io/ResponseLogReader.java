@@ -0,0 +1,317 @@
+package io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+public class ResponseLogReader implements Closeable {
+    private static final long WINDOW_SIZE = 67108864;
+    private int[] answers;
+    private ByteBuffer batch;
+    private int batchRemaining;
+    private final FileChannel channel;
+    private int corruptBatches;
+    private long corruptOffset;
+    private final CRC32 crc;
+    private boolean ended;
+    private final File file;
+    private long offset;
+    private final boolean owner;
+    private int questions;
+    private long records;
+    private long seed;
+    private long lastCorruptOffset;
+    private long size;
+    private int surveyId;
+    private boolean truncated;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private class Answers implements Iterator<int[]> {
+        private boolean ready;
+        private final int surveyId;
+
+        Answers(int surveyId) {
+            this.surveyId = surveyId;
+        }
+
+        public boolean hasNext() {
+            while (!this.ready) {
+                try {
+                    if (!ResponseLogReader.this.next()) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                this.ready = ResponseLogReader.this.surveyId == this.surveyId;
+            }
+            return true;
+        }
+
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.ready = false;
+            return ResponseLogReader.this.getAnswers();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public ResponseLogReader(File file) throws IOException {
+        this(new FileInputStream(file).getChannel(), file, true);
+    }
+
+    ResponseLogReader(FileChannel channel, File file) throws IOException {
+        this(channel, file, false);
+    }
+
+    private ResponseLogReader(FileChannel channel, File file, boolean owner) throws IOException {
+        this.channel = channel;
+        this.file = file;
+        this.owner = owner;
+        this.crc = new CRC32();
+        this.answers = new int[64];
+        this.corruptOffset = -1;
+        this.lastCorruptOffset = -1;
+        this.size = channel.size();
+        try {
+            ByteBuffer header = map(0, ResponseLog.HEADER_SIZE);
+            if (header == null || header.getInt() != ResponseLog.MAGIC) {
+                throw new IOException(file.getAbsolutePath() + " is not a response log");
+            }
+            int version = header.getInt();
+            if (version != ResponseLog.VERSION) {
+                throw new IOException("Unsupported response log version " + version);
+            }
+        } catch (IOException e) {
+            if (owner) {
+                channel.close();
+            }
+            throw e;
+        }
+        this.offset = ResponseLog.HEADER_SIZE;
+    }
+
+    private ByteBuffer map(long position, int length) throws IOException {
+        if (position + ((long) length) > this.size) {
+            return null;
+        }
+        if (this.window == null || position < this.windowStart || position + ((long) length) > this.windowStart + ((long) this.window.capacity())) {
+            this.windowStart = position;
+            this.window = this.channel.map(MapMode.READ_ONLY, position, Math.min(this.size - position, Math.max(WINDOW_SIZE, (long) length)));
+        }
+        ByteBuffer res = this.window.duplicate();
+        res.position((int) (position - this.windowStart));
+        res.limit(res.position() + length);
+        return res.slice();
+    }
+
+    private boolean nextBatch() throws IOException {
+        while (true) {
+            ByteBuffer header = map(this.offset, ResponseLog.BATCH_HEADER_SIZE);
+            if (header == null) {
+                this.size = this.channel.size();
+                header = map(this.offset, ResponseLog.BATCH_HEADER_SIZE);
+            }
+            if (header == null) {
+                this.truncated = this.offset < this.size;
+                return false;
+            }
+            int length = header.getInt();
+            int count = header.getInt();
+            int checksum = header.getInt();
+            long start = this.offset + ((long) ResponseLog.BATCH_HEADER_SIZE);
+            boolean plausible = ResponseLog.isPlausibleBatch(length, count);
+            ByteBuffer payload = null;
+            if (plausible) {
+                payload = map(start, length);
+                if (payload == null) {
+                    this.size = this.channel.size();
+                    payload = map(start, length);
+                }
+                if (payload != null && verify(payload, checksum)) {
+                    this.batch = payload;
+                    this.batchRemaining = count;
+                    this.offset = start + ((long) length);
+                    return true;
+                }
+                if (payload != null && (start + ((long) length) == this.size || isBatch(start + ((long) length)))) {
+                    corrupt();
+                    this.offset = start + ((long) length);
+                    continue;
+                }
+            }
+            long next = resync(this.offset + 1);
+            if (next < 0) {
+                if (plausible && payload == null) {
+                    this.truncated = true;
+                } else {
+                    corrupt();
+                    this.offset = this.size;
+                }
+                return false;
+            }
+            corrupt();
+            this.offset = next;
+        }
+    }
+
+    private long resync(long from) throws IOException {
+        for (long p = from; p + ((long) ResponseLog.BATCH_HEADER_SIZE) <= this.size; p++) {
+            if (isBatch(p)) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBatch(long position) throws IOException {
+        ByteBuffer header = map(position, ResponseLog.BATCH_HEADER_SIZE);
+        if (header == null) {
+            return false;
+        }
+        int length = header.getInt();
+        int count = header.getInt();
+        int checksum = header.getInt();
+        if (!ResponseLog.isPlausibleBatch(length, count)) {
+            return false;
+        }
+        ByteBuffer payload = map(position + ((long) ResponseLog.BATCH_HEADER_SIZE), length);
+        return payload != null && verify(payload, checksum);
+    }
+
+    private void corrupt() {
+        if (this.corruptBatches == 0) {
+            this.corruptOffset = this.offset;
+        }
+        this.lastCorruptOffset = this.offset;
+        this.corruptBatches++;
+    }
+
+    private boolean verify(ByteBuffer payload, int checksum) {
+        this.crc.reset();
+        this.crc.update(payload.duplicate());
+        return ((int) this.crc.getValue()) == checksum;
+    }
+
+    long validEnd() throws IOException {
+        long end = this.offset;
+        while (nextBatch()) {
+            end = this.offset;
+        }
+        return end;
+    }
+
+    long getLastCorruptOffset() {
+        return this.lastCorruptOffset;
+    }
+
+    public boolean next() throws IOException {
+        while (!this.ended) {
+            if (this.batchRemaining > 0) {
+                try {
+                    this.surveyId = this.batch.getInt();
+                    this.seed = this.batch.getLong();
+                    int n = getVarint(this.batch);
+                    if (n < 0 || n > this.batch.remaining()) {
+                        throw new IOException("Corrupt record " + (this.records + 1) + " in " + this.file.getAbsolutePath());
+                    }
+                    if (n > this.answers.length) {
+                        this.answers = new int[Math.max(n, this.answers.length * 2)];
+                    }
+                    for (int i = 0; i < n; i++) {
+                        this.answers[i] = getVarint(this.batch) - 1;
+                    }
+                    this.questions = n;
+                    this.batchRemaining--;
+                    this.records++;
+                    return true;
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("Corrupt record " + (this.records + 1) + " in " + this.file.getAbsolutePath());
+                }
+            } else if (!nextBatch()) {
+                this.ended = true;
+            }
+        }
+        return false;
+    }
+
+    private static int getVarint(ByteBuffer buf) {
+        int res = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf.get();
+            res |= (b & 127) << shift;
+            shift += 7;
+        } while (b < 0 && shift < 35);
+        return res;
+    }
+
+    public int getSurveyId() {
+        return this.surveyId;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public int getQuestionCount() {
+        return this.questions;
+    }
+
+    public int getAnswer(int question) {
+        if (question < 0 || question >= this.questions) {
+            throw new IndexOutOfBoundsException("Record has no question " + question);
+        }
+        return this.answers[question];
+    }
+
+    public int[] getAnswers() {
+        int[] res = new int[this.questions];
+        System.arraycopy(this.answers, 0, res, 0, this.questions);
+        return res;
+    }
+
+    public long getRecordCount() {
+        return this.records;
+    }
+
+    public boolean isTruncated() {
+        return this.truncated;
+    }
+
+    public int getCorruptBatchCount() {
+        return this.corruptBatches;
+    }
+
+    public long getCorruptOffset() {
+        return this.corruptOffset;
+    }
+
+    public Iterator<int[]> answers(int surveyId) {
+        return new Answers(surveyId);
+    }
+
+    public void close() throws IOException {
+        this.window = null;
+        this.batch = null;
+        if (this.owner) {
+            this.channel.close();
+        }
+    }
+}
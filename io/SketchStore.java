@@ -0,0 +1,97 @@
+package io;
+
+import common.CompiledSurvey;
+import common.PopulationSketch;
+import common.Survey;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class SketchStore {
+    public static final String EXTENSION = ".sketch";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static Logger logger;
+
+    static {
+        logger = Logger.getLogger(SketchStore.class.getName());
+    }
+
+    public static File sketchFile(File surveyFile) {
+        return Parser.siblingFile(surveyFile, EXTENSION);
+    }
+
+    public static PopulationSketch load(Survey survey) {
+        if (survey.getSource() == null) {
+            return new PopulationSketch(survey.compile());
+        }
+        return load(sketchFile(survey.getSource()), survey.compile());
+    }
+
+    public static PopulationSketch load(File file, CompiledSurvey survey) {
+        if (file.isFile()) {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    return PopulationSketch.read(in, survey);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Ignoring " + file.getAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+        return new PopulationSketch(survey);
+    }
+
+    public static PopulationSketch merge(Survey survey, PopulationSketch added) throws IOException {
+        if (survey.getSource() == null) {
+            throw new IOException("Survey " + survey.getTitle() + " was not loaded from a file");
+        }
+        return merge(sketchFile(survey.getSource()), survey.compile(), added);
+    }
+
+    public static synchronized PopulationSketch merge(File file, CompiledSurvey survey, PopulationSketch added) throws IOException {
+        RandomAccessFile lock = new RandomAccessFile(file.getPath() + LOCK_EXTENSION, "rw");
+        try {
+            lock.getChannel().lock();
+            PopulationSketch sketch = load(file, survey);
+            sketch.merge(added);
+            save(file, sketch);
+            return sketch;
+        } finally {
+            lock.close();
+        }
+    }
+
+    public static void save(Survey survey, PopulationSketch sketch) throws IOException {
+        if (survey.getSource() == null) {
+            throw new IOException("Survey " + survey.getTitle() + " was not loaded from a file");
+        }
+        save(sketchFile(survey.getSource()), sketch);
+    }
+
+    public static void save(File file, PopulationSketch sketch) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            sketch.write(out);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Could not rename " + tmp.getAbsolutePath());
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+public class SurveyGenerator {
+    private static final String[] WORDS = new String[]{"quiet", "evenings", "travel", "friends", "music", "food", "work", "weekends", "books", "risk", "plans", "weather", "cities", "animals", "games", "mornings"};
+    private final int choices;
+    private final int questions;
+    private final int results;
+    private final long seed;
+    private final int types;
+    private double unansweredRate;
+
+    private class Answers implements Iterator<int[]> {
+        private final long count;
+        private long generated;
+        private final Random random;
+
+        Answers(long count, long seed) {
+            this.count = count;
+            this.random = new Random(seed);
+        }
+
+        public boolean hasNext() {
+            return this.generated < this.count;
+        }
+
+        public int[] next() {
+            if (this.generated >= this.count) {
+                throw new NoSuchElementException();
+            }
+            this.generated++;
+            int[] sheet = new int[SurveyGenerator.this.questions];
+            SurveyGenerator.this.answer(sheet, this.random);
+            return sheet;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public SurveyGenerator(int questions, int choices, int types, int results, long seed) {
+        if (questions < 1 || choices < 1 || types < 1 || results < 0) {
+            throw new IllegalArgumentException("Invalid survey size " + questions + "x" + choices + ", " + types + " types, " + results + " results");
+        }
+        this.questions = questions;
+        this.choices = choices;
+        this.types = types;
+        this.results = results;
+        this.seed = seed;
+    }
+
+    public static SurveyGenerator realistic(long seed) {
+        return new SurveyGenerator(40, 4, 8, 12, seed);
+    }
+
+    public static SurveyGenerator extreme(long seed) {
+        return new SurveyGenerator(20000, 8, 200, 2000, seed);
+    }
+
+    public int getQuestionCount() {
+        return this.questions;
+    }
+
+    public int getChoiceCount() {
+        return this.choices;
+    }
+
+    public int getTypeCount() {
+        return this.types;
+    }
+
+    public int getResultCount() {
+        return this.results;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public double getUnansweredRate() {
+        return this.unansweredRate;
+    }
+
+    public void setUnansweredRate(double rate) {
+        if (rate < 0.0d || rate > 1.0d) {
+            throw new IllegalArgumentException("Unanswered rate must be between 0 and 1, got " + rate);
+        }
+        this.unansweredRate = rate;
+    }
+
+    public String generate() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(sb);
+            return sb.toString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void write(Appendable out) throws IOException {
+        int i;
+        Random random = new Random(this.seed);
+        out.append("Generated survey ").append(String.valueOf(this.seed)).append(" # ").append(String.valueOf(this.questions)).append(" questions\n");
+        out.append(String.valueOf(this.questions)).append('\n');
+        for (i = 1; i <= this.questions; i++) {
+            out.append("Question ").append(String.valueOf(i)).append(": how do you feel about ").append(word(random)).append(" and ").append(word(random)).append("?\n");
+            out.append(String.valueOf(this.choices)).append('\n');
+            for (int j = 1; j <= this.choices; j++) {
+                out.append("Choice ").append(String.valueOf(j)).append(", ").append(word(random)).append('\n');
+                int values = random.nextInt(3) + 1;
+                for (int k = 0; k < values; k++) {
+                    out.append(String.valueOf(random.nextInt(this.types) + 1)).append(' ').append(String.valueOf(((double) (random.nextInt(50) + 1)) / 10.0d)).append(' ');
+                }
+                out.append('\n');
+            }
+            out.append('\n');
+        }
+        double mean = (((double) this.questions) * 2.0d * 2.55d) / ((double) this.types);
+        out.append(String.valueOf(this.results)).append('\n');
+        for (i = 1; i <= this.results; i++) {
+            out.append("Result ").append(String.valueOf(i)).append(": you like ").append(word(random)).append('\n');
+            int reqs = random.nextInt(2) + 1;
+            for (int k = 0; k < reqs; k++) {
+                int kind = random.nextInt(3);
+                if (kind == 0) {
+                    out.append("0 ").append(String.valueOf(random.nextInt(this.types) + 1));
+                } else if (kind != 1 || this.types < 2) {
+                    double min = Math.floor(mean * random.nextDouble());
+                    out.append(String.valueOf(random.nextInt(this.types) + 1)).append(' ').append(String.valueOf(min)).append(' ').append(String.valueOf(Math.ceil(min + mean)));
+                } else {
+                    int a = random.nextInt(this.types);
+                    int b = (a + random.nextInt(this.types - 1) + 1) % this.types;
+                    out.append("-1 ").append(String.valueOf(a + 1)).append(' ').append(String.valueOf(b + 1));
+                }
+                out.append(' ');
+            }
+            out.append('\n');
+        }
+        out.append(String.valueOf(this.types)).append('\n');
+        for (i = 1; i <= this.types; i++) {
+            out.append("Type ").append(String.valueOf(i)).append('\n');
+        }
+        out.append("www.example.com\n");
+    }
+
+    public Iterator<int[]> answers(long count, long seed) {
+        return new Answers(count, seed);
+    }
+
+    public long writeAnswers(Writer out, long count, long seed, boolean json) throws IOException {
+        int q;
+        StringBuilder sb = new StringBuilder();
+        if (!json) {
+            sb.append("id");
+            for (q = 1; q <= this.questions; q++) {
+                sb.append(",q").append(q);
+            }
+            sb.append('\n');
+        }
+        long written = 0;
+        int[] sheet = new int[this.questions];
+        Random random = new Random(seed);
+        for (long id = 1; id <= count; id++) {
+            answer(sheet, random);
+            if (json) {
+                sb.append("{\"id\": \"r").append(id).append("\", \"answers\": [");
+                for (q = 0; q < sheet.length; q++) {
+                    if (q > 0) {
+                        sb.append(", ");
+                    }
+                    if (sheet[q] < 0) {
+                        sb.append("null");
+                    } else {
+                        sb.append(sheet[q] + 1);
+                    }
+                }
+                sb.append("]}\n");
+            } else {
+                sb.append('r').append(id);
+                for (q = 0; q < sheet.length; q++) {
+                    sb.append(',');
+                    if (sheet[q] >= 0) {
+                        sb.append(sheet[q] + 1);
+                    }
+                }
+                sb.append('\n');
+            }
+            if (sb.length() >= 8192) {
+                written += (long) sb.length();
+                out.append(sb);
+                sb.setLength(0);
+            }
+        }
+        written += (long) sb.length();
+        out.append(sb);
+        return written;
+    }
+
+    private void answer(int[] sheet, Random random) {
+        int profile = random.nextInt(this.choices);
+        for (int q = 0; q < sheet.length; q++) {
+            if (this.unansweredRate > 0.0d && random.nextDouble() < this.unansweredRate) {
+                sheet[q] = -1;
+            } else if (random.nextInt(5) < 3) {
+                sheet[q] = (popular(q) + profile) % this.choices;
+            } else {
+                sheet[q] = random.nextInt(this.choices);
+            }
+        }
+    }
+
+    private int popular(int question) {
+        long h = (this.seed ^ (((long) question) * -7046029254386353131L)) * -4658895280553007687L;
+        return (int) (((h >>> 33) ^ h) & 2147483647L) % this.choices;
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
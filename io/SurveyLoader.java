@@ -0,0 +1,167 @@
+package io;
+
+import common.Survey;
+import common.SurveyFormatException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class SurveyLoader {
+    private static SurveyLoader defaultLoader;
+    private static Logger logger;
+    private final ExecutorService executor;
+
+    public interface Listener {
+        void failed(LoadError loadError);
+
+        void loaded(File file, Survey survey);
+    }
+
+    public static class LoadError {
+        private final Throwable cause;
+        private final int column;
+        private final File file;
+        private final int line;
+        private final String message;
+
+        public LoadError(File file, Throwable cause) {
+            this.file = file;
+            this.cause = cause;
+            if (cause instanceof SurveyFormatException) {
+                this.line = ((SurveyFormatException) cause).getLine();
+                this.column = ((SurveyFormatException) cause).getColumn();
+                this.message = cause.getMessage();
+            } else if (cause instanceof CharacterCodingException) {
+                this.line = 0;
+                this.column = 0;
+                this.message = "Not a " + Parser.CHARSET.name() + " text file";
+            } else {
+                this.line = 0;
+                this.column = 0;
+                this.message = cause.getMessage() == null ? cause.toString() : cause.getMessage();
+            }
+        }
+
+        public File getFile() {
+            return this.file;
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+
+        public int getLine() {
+            return this.line;
+        }
+
+        public int getColumn() {
+            return this.column;
+        }
+
+        public Throwable getCause() {
+            return this.cause;
+        }
+
+        public String toString() {
+            return this.file.getName() + ": " + this.message;
+        }
+    }
+
+    private static class Outcome {
+        final LoadError error;
+        final File file;
+        final Survey survey;
+
+        Outcome(File file, Survey survey, LoadError error) {
+            this.file = file;
+            this.survey = survey;
+            this.error = error;
+        }
+    }
+
+    static {
+        logger = Logger.getLogger(SurveyLoader.class.getName());
+    }
+
+    public SurveyLoader(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public static synchronized SurveyLoader getDefault() {
+        if (defaultLoader == null) {
+            defaultLoader = new SurveyLoader(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "survey-loader-" + this.count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            }));
+        }
+        return defaultLoader;
+    }
+
+    public static File[] listSurveys(File dir) throws IOException, IllegalArgumentException {
+        if (dir.isFile()) {
+            throw new IllegalArgumentException("File given as argument instead of directory!");
+        }
+        File[] files = dir.listFiles(Parser.fileFilter);
+        if (files != null) {
+            return files;
+        }
+        throw new IOException("Error reading files from " + dir.getAbsolutePath());
+    }
+
+    public int loadAll(File dir, Listener listener) throws IOException, InterruptedException {
+        return load(listSurveys(dir), listener);
+    }
+
+    public int load(File[] files, Listener listener) throws InterruptedException {
+        CompletionService<Outcome> completion = new ExecutorCompletionService<>(this.executor);
+        for (int i = 0; i < files.length; i++) {
+            final File file = files[i];
+            completion.submit(new Callable<Outcome>() {
+                public Outcome call() {
+                    return SurveyLoader.load(file);
+                }
+            });
+        }
+        int loaded = 0;
+        for (int i = 0; i < files.length; i++) {
+            try {
+                Outcome outcome = completion.take().get();
+                if (outcome.error == null) {
+                    loaded++;
+                    listener.loaded(outcome.file, outcome.survey);
+                } else {
+                    listener.failed(outcome.error);
+                }
+            } catch (ExecutionException e) {
+                logger.log(Level.SEVERE, "Survey loader task failed", e.getCause());
+            }
+        }
+        return loaded;
+    }
+
+    private static Outcome load(File file) {
+        logger.log(Level.FINE, "Reading {0}", file);
+        try {
+            return new Outcome(file, Parser.parseSurvey(file), null);
+        } catch (IOException e) {
+            return new Outcome(file, null, new LoadError(file, e));
+        } catch (RuntimeException e2) {
+            return new Outcome(file, null, new LoadError(file, e2));
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package io;
+
+import common.Survey;
+import io.SurveyLoader.LoadError;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class SurveyRepository {
+    public static final File ASSETS = new File("./assets");
+    public static final String INDEX_NAME = ".catalog";
+    public static final int MAGIC = 0x53435447;
+    private static final long SETTLE_MILLIS = 200;
+    public static final int VERSION = 1;
+    private static SurveyRepository defaultRepository;
+    private static Logger logger;
+    private volatile boolean closed;
+    private final File dir;
+    private final ConcurrentHashMap<File, Listing> entries;
+    private final File index;
+    private final CountDownLatch ready;
+    private volatile IOException scanError;
+    private WatchService service;
+    private Thread watcher;
+
+    public static class Listing {
+        private final LoadError error;
+        private final File file;
+        private final long length;
+        private final long modified;
+        private final String title;
+
+        Listing(File file, long length, long modified, String title, LoadError error) {
+            this.file = file;
+            this.length = length;
+            this.modified = modified;
+            this.title = title;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return this.file;
+        }
+
+        public String getTitle() {
+            return this.title;
+        }
+
+        public long getLength() {
+            return this.length;
+        }
+
+        public long getModified() {
+            return this.modified;
+        }
+
+        public LoadError getError() {
+            return this.error;
+        }
+
+        boolean isCurrent(long length, long modified) {
+            return this.length == length && this.modified == modified;
+        }
+
+        public String toString() {
+            return this.title == null ? this.file.getName() : this.title;
+        }
+    }
+
+    static {
+        logger = Logger.getLogger(SurveyRepository.class.getName());
+    }
+
+    public SurveyRepository(File dir) {
+        this.dir = dir.getAbsoluteFile();
+        this.index = new File(this.dir, INDEX_NAME);
+        this.entries = new ConcurrentHashMap<>();
+        this.ready = new CountDownLatch(1);
+    }
+
+    public static synchronized SurveyRepository getDefault() {
+        if (defaultRepository == null) {
+            defaultRepository = new SurveyRepository(ASSETS);
+            defaultRepository.start();
+        }
+        return defaultRepository;
+    }
+
+    public File getDirectory() {
+        return this.dir;
+    }
+
+    public synchronized void start() {
+        if (this.watcher == null && !this.closed) {
+            this.watcher = new Thread(new Runnable() {
+                public void run() {
+                    SurveyRepository.this.watch();
+                }
+            }, "survey-watcher");
+            this.watcher.setDaemon(true);
+            this.watcher.start();
+        }
+    }
+
+    public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+        start();
+        return this.ready.await(timeout, unit);
+    }
+
+    public boolean isReady() {
+        return this.ready.getCount() == 0;
+    }
+
+    public int getLoadedCount() {
+        int n = 0;
+        Iterator<Listing> it = this.entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().title != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    public List<Listing> getListings() throws IOException, InterruptedException {
+        start();
+        this.ready.await();
+        if (this.scanError != null) {
+            scan();
+            if (this.scanError != null) {
+                throw this.scanError;
+            }
+        }
+        List<Listing> current = snapshot();
+        ArrayList<Listing> res = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            Listing l = current.get(i);
+            if (l.title != null) {
+                res.add(l);
+            }
+        }
+        return res;
+    }
+
+    public List<LoadError> getErrors() {
+        List<Listing> current = snapshot();
+        ArrayList<LoadError> res = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            Listing l = current.get(i);
+            if (l.error != null) {
+                res.add(l.error);
+            }
+        }
+        return res;
+    }
+
+    public Survey load(Listing listing) throws IOException {
+        return Parser.parseSurvey(listing.getFile());
+    }
+
+    private List<Listing> snapshot() {
+        ArrayList<Listing> res = new ArrayList<>(this.entries.values());
+        Collections.sort(res, new Comparator<Listing>() {
+            public int compare(Listing a, Listing b) {
+                return a.file.getName().compareTo(b.file.getName());
+            }
+        });
+        return res;
+    }
+
+    public int refresh() throws IOException {
+        File[] files;
+        try {
+            files = SurveyLoader.listSurveys(this.dir);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(this.dir.getAbsolutePath() + " is not a directory");
+        }
+        HashSet<File> present = new HashSet<>(Arrays.asList(files));
+        synchronized (this) {
+            int changed = 0;
+            Iterator<File> it = this.entries.keySet().iterator();
+            while (it.hasNext()) {
+                File file = it.next();
+                if (!present.contains(file)) {
+                    it.remove();
+                    logger.log(Level.INFO, "Removed {0}", file);
+                    changed++;
+                }
+            }
+            changed += update(present);
+            indexed(changed);
+            return changed;
+        }
+    }
+
+    public synchronized int reload(Collection<File> files) {
+        int changed = update(files);
+        indexed(changed);
+        return changed;
+    }
+
+    private int update(Collection<File> files) {
+        int changed = 0;
+        Iterator<File> it = files.iterator();
+        while (it.hasNext()) {
+            File file = it.next();
+            long length = file.length();
+            long modified = file.lastModified();
+            if (!file.isFile()) {
+                if (this.entries.remove(file) != null) {
+                    logger.log(Level.INFO, "Removed {0}", file);
+                    changed++;
+                }
+            } else {
+                Listing l = this.entries.get(file);
+                if (l == null || !l.isCurrent(length, modified)) {
+                    this.entries.put(file, index(file, length, modified));
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private void indexed(int changed) {
+        if (changed > 0) {
+            logger.log(Level.INFO, "Indexed {0} change(s) in {1}", new Object[]{Integer.valueOf(changed), this.dir});
+            saveIndex();
+        }
+    }
+
+    private static Listing index(File file, long length, long modified) {
+        try {
+            return new Listing(file, length, modified, Parser.readTitle(file), null);
+        } catch (IOException e) {
+            return new Listing(file, length, modified, null, new LoadError(file, e));
+        } catch (RuntimeException e2) {
+            return new Listing(file, length, modified, null, new LoadError(file, e2));
+        }
+    }
+
+    private void loadIndex() {
+        if (this.index.isFile()) {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.index)));
+                try {
+                    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                        throw new IOException("Not a survey catalog");
+                    }
+                    int n = in.readInt();
+                    for (int i = 0; i < n; i++) {
+                        File file = new File(this.dir, in.readUTF());
+                        long length = in.readLong();
+                        long modified = in.readLong();
+                        this.entries.put(file, new Listing(file, length, modified, in.readUTF(), null));
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                this.entries.clear();
+                logger.log(Level.WARNING, "Ignoring " + this.index.getAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void saveIndex() {
+        List<Listing> current = snapshot();
+        ArrayList<Listing> titled = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i).title != null) {
+                titled.add(current.get(i));
+            }
+        }
+        File tmp = new File(this.index.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(titled.size());
+                for (int i = 0; i < titled.size(); i++) {
+                    Listing l = titled.get(i);
+                    out.writeUTF(l.file.getName());
+                    out.writeLong(l.length);
+                    out.writeLong(l.modified);
+                    out.writeUTF(l.title);
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(this.index)) {
+                this.index.delete();
+                if (!tmp.renameTo(this.index)) {
+                    throw new IOException("Could not rename " + tmp.getAbsolutePath());
+                }
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            logger.log(Level.INFO, "Could not write " + this.index.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    private void scan() {
+        try {
+            refresh();
+            this.scanError = null;
+        } catch (IOException e) {
+            this.entries.clear();
+            this.scanError = e;
+        }
+    }
+
+    private void watch() {
+        WatchService watch = null;
+        try {
+            try {
+                watch = FileSystems.getDefault().newWatchService();
+                this.dir.toPath().register(watch, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                synchronized (this) {
+                    this.service = watch;
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Not watching " + this.dir + ": " + e.getMessage());
+                if (watch != null) {
+                    watch.close();
+                    watch = null;
+                }
+            }
+            loadIndex();
+            scan();
+            this.ready.countDown();
+            while (watch != null && !this.closed) {
+                WatchKey key = watch.take();
+                HashSet<File> changed = new HashSet<>();
+                boolean overflow = false;
+                boolean valid = true;
+                while (key != null) {
+                    Iterator<WatchEvent<?>> it = key.pollEvents().iterator();
+                    while (it.hasNext()) {
+                        WatchEvent<?> event = (WatchEvent) it.next();
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            File file = this.dir.toPath().resolve((Path) event.context()).toFile();
+                            if (Parser.fileFilter.accept(file)) {
+                                changed.add(file);
+                            }
+                        }
+                    }
+                    valid &= key.reset();
+                    key = watch.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (overflow || !valid) {
+                    scan();
+                } else {
+                    reload(changed);
+                }
+                if (!valid) {
+                    logger.log(Level.WARNING, "Stopped watching " + this.dir);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+        } catch (ClosedWatchServiceException e2) {
+        } catch (IOException e3) {
+            logger.log(Level.WARNING, "Watching " + this.dir + " failed", e3);
+        } finally {
+            this.ready.countDown();
+            if (watch != null) {
+                try {
+                    watch.close();
+                } catch (IOException e4) {
+                }
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        this.closed = true;
+        if (this.service != null) {
+            this.service.close();
+        }
+        if (this.watcher != null) {
+            this.watcher.interrupt();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package server;
+
+import cli.AnswerReader;
+import cli.AnswerReader.Record;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import common.CompiledSurvey;
+import common.MatchTrace;
+import common.Result;
+import common.Survey;
+import gui.ChartRenderer;
+import gui.ChartRenderer.Slices;
+import io.Parser;
+import io.SurveyLoader;
+import io.SurveyLoader.LoadError;
+import io.SurveyLoader.Listener;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ScoreServer {
+    private static final int CHART_HEIGHT = 400;
+    private static final int CHART_WIDTH = 600;
+    public static final int DEFAULT_PORT = 8080;
+    private static final int MAX_BODY = 1048576;
+    private static Logger logger;
+    private final ChartRenderer charts;
+    private final ExecutorService executor;
+    private final List<String> ids;
+    private final HttpServer server;
+    private final Map<String, Survey> surveys;
+
+    static {
+        logger = Logger.getLogger(ScoreServer.class.getName());
+    }
+
+    public ScoreServer(File dir, int port) throws IOException, InterruptedException {
+        final HashMap<String, Survey> loaded = new HashMap<>();
+        SurveyLoader.getDefault().loadAll(dir, new Listener() {
+            public void loaded(File file, Survey survey) {
+                try {
+                    survey.compile();
+                    loaded.put(ScoreServer.id(file), survey);
+                } catch (IllegalArgumentException e) {
+                    ScoreServer.logger.log(Level.WARNING, "Skipping " + file.getName() + ": " + e.getMessage());
+                }
+            }
+
+            public void failed(LoadError error) {
+                ScoreServer.logger.log(Level.WARNING, "Skipping " + error);
+            }
+        });
+        ArrayList<String> names = new ArrayList<>(loaded.keySet());
+        Collections.sort(names);
+        this.ids = Collections.unmodifiableList(names);
+        this.surveys = Collections.unmodifiableMap(loaded);
+        this.charts = new ChartRenderer(CHART_WIDTH, CHART_HEIGHT);
+        this.executor = newExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/surveys", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                ScoreServer.this.dispatch(exchange);
+            }
+        });
+    }
+
+    static ExecutorService newExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null, new Object[0]);
+        } catch (Exception e) {
+            logger.log(Level.INFO, "Virtual threads are not available, using a cached thread pool");
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "score-server-" + this.count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+    }
+
+    private static String id(File file) {
+        String name = file.getName();
+        return name.endsWith(".txt") ? name.substring(0, name.length() - 4) : name;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        File dir = new File(args.length > 0 ? args[0] : "./assets");
+        ScoreServer server = new ScoreServer(dir, args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+        server.start();
+        System.out.println("Serving " + server.getSurveyCount() + " surveys from " + dir.getAbsolutePath() + " on http://localhost:" + server.getPort() + "/surveys");
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdown();
+    }
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    public int getSurveyCount() {
+        return this.ids.size();
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length <= 2) {
+                if (method.equals("GET")) {
+                    list(exchange);
+                } else {
+                    error(exchange, 405, "Method not allowed");
+                }
+                return;
+            }
+            Survey survey = this.surveys.get(path[2]);
+            if (survey == null || path.length > 4 || (path.length == 4 && !path[3].equals("score"))) {
+                error(exchange, 404, "Not found");
+            } else if (path.length == 3) {
+                if (method.equals("GET")) {
+                    describe(exchange, path[2], survey);
+                } else {
+                    error(exchange, 405, "Method not allowed");
+                }
+            } else if (method.equals("POST")) {
+                score(exchange, survey);
+            } else {
+                error(exchange, 405, "Method not allowed");
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Request failed: " + exchange.getRequestURI(), e);
+            error(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < this.ids.size(); i++) {
+            Survey s = this.surveys.get(this.ids.get(i));
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":");
+            MatchTrace.quote(sb, this.ids.get(i));
+            sb.append(",\"title\":");
+            MatchTrace.quote(sb, s.getTitle());
+            sb.append(",\"questions\":").append(s.compile().getQuestionCount()).append('}');
+        }
+        sb.append("]\n");
+        send(exchange, 200, sb.toString());
+    }
+
+    private void describe(HttpExchange exchange, String id, Survey survey) throws IOException {
+        int i;
+        CompiledSurvey c = survey.compile();
+        StringBuilder sb = new StringBuilder("{\"id\":");
+        MatchTrace.quote(sb, id);
+        sb.append(",\"title\":");
+        MatchTrace.quote(sb, survey.getTitle());
+        sb.append(",\"website\":");
+        MatchTrace.quote(sb, survey.getWebsite());
+        sb.append(",\"types\":[");
+        for (i = 0; i < c.getTypeCount(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            MatchTrace.quote(sb, c.getTypeName(i));
+        }
+        sb.append("],\"questions\":[");
+        for (i = 0; i < c.getQuestionCount(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"text\":");
+            MatchTrace.quote(sb, c.getQuestion(i).getText());
+            sb.append(",\"choices\":[");
+            for (int j = 0; j < c.getChoiceCount(i); j++) {
+                if (j > 0) {
+                    sb.append(',');
+                }
+                MatchTrace.quote(sb, c.getChoice(i, j).getText());
+            }
+            sb.append("]}");
+        }
+        sb.append("]}\n");
+        send(exchange, 200, sb.toString());
+    }
+
+    private void score(HttpExchange exchange, Survey survey) throws IOException {
+        int i;
+        String body = readBody(exchange);
+        if (body == null) {
+            error(exchange, 413, "Request body too large");
+            return;
+        }
+        CompiledSurvey c = survey.compile();
+        AnswerReader reader = new AnswerReader(new BufferedReader(new StringReader(body.replace('\r', ' ').replace('\n', ' '))), AnswerReader.JSONL, c.getQuestionCount());
+        if (!reader.hasNext()) {
+            error(exchange, 400, "Expected a JSON object with an \"answers\" array");
+            return;
+        }
+        int[] answers = reader.next();
+        Record record = reader.poll();
+        if (record.getError() != null) {
+            error(exchange, 400, record.getError());
+            return;
+        }
+        try {
+            double[] scores = c.score(answers);
+            List<Result> results = c.match(scores);
+            StringBuilder sb = new StringBuilder("{\"scores\":{");
+            String[] names = new String[scores.length];
+            for (i = 0; i < scores.length; i++) {
+                names[i] = c.getTypeName(i);
+                if (i > 0) {
+                    sb.append(',');
+                }
+                MatchTrace.quote(sb, names[i]);
+                sb.append(':').append(scores[i]);
+            }
+            sb.append("},\"results\":[");
+            for (i = 0; i < results.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                MatchTrace.quote(sb, results.get(i).getText());
+            }
+            sb.append(']');
+            if (wantsChart(exchange.getRequestURI())) {
+                Slices top = ChartRenderer.top(names, scores);
+                byte[] png = this.charts.renderPie(survey.getTitle(), top.getNames(), top.getValues());
+                sb.append(",\"chart\":\"data:image/png;base64,").append(Base64.getEncoder().encodeToString(png)).append('"');
+            }
+            sb.append("}\n");
+            send(exchange, 200, sb.toString());
+        } catch (IndexOutOfBoundsException e) {
+            error(exchange, 400, e.getMessage());
+        }
+    }
+
+    private static boolean wantsChart(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return false;
+        }
+        String[] params = query.split("&");
+        for (int i = 0; i < params.length; i++) {
+            if (params[i].equals("chart") || params[i].equals("chart=png") || params[i].equals("chart=true")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (true) {
+            int n = in.read(buffer);
+            if (n < 0) {
+                return new String(out.toByteArray(), Parser.CHARSET);
+            }
+            if (out.size() + n > MAX_BODY) {
+                return null;
+            }
+            out.write(buffer, 0, n);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        MatchTrace.quote(sb, message);
+        sb.append("}\n");
+        send(exchange, status, sb.toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(Parser.CHARSET);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, (long) bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}
@@ -0,0 +1,494 @@
+package tests;
+
+import common.Choice;
+import common.CompiledSurvey;
+import common.Survey;
+import gui.BarChart;
+import gui.ChartRenderer;
+import gui.PieChart;
+import io.Parser;
+import io.SurveyGenerator;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+public class EngineBenchmark {
+    private static final long SEED = 42;
+    private static final int SHEETS = 256;
+    private static final String USAGE = "Usage: java tests.EngineBenchmark [options] [name regex]\n\nOptions:\n  --size realistic|extreme|all   survey sizes to run (default: all)\n  --forks N                      fresh JVMs per benchmark, 0 runs in this JVM (default: 2)\n  --warmup N                     warmup iterations per fork (default: 3)\n  --iterations N                 measured iterations per fork (default: 5)\n  --time MS                      length of one iteration (default: 1000)\n\nEvery benchmark runs in its own forked JVM with the JVM options of this one,\nso JIT profiles and heap state do not leak between benchmarks. It reports the\nmean time per operation with its standard error over the measured iterations\nof all forks, the throughput and the bytes allocated per operation on the\nbenchmark thread (work handed to the loader pool, as in readAll, is not\ncounted). Results are consumed by a blackhole so the JIT cannot drop the\nwork. Inputs come from io.SurveyGenerator with a fixed seed and every\nbenchmark builds its own state, so runs on the same JVM are comparable.";
+    private static ThreadMXBean threads;
+    private boolean child;
+    private int forks;
+    private long iterationMillis;
+    private int iterations;
+    private Pattern filter;
+    private String size;
+    private int warmup;
+
+    public static final class Blackhole {
+        private volatile long a;
+        private volatile long b;
+        private int mask;
+        private int seed;
+        private Object sink;
+
+        Blackhole() {
+            this.a = 1;
+            this.b = 2;
+            this.mask = 1;
+            this.seed = (int) System.nanoTime();
+        }
+
+        public void consume(long v) {
+            if ((v == this.a) & (v == this.b)) {
+                this.sink = Long.valueOf(v);
+            }
+        }
+
+        public void consume(Object o) {
+            int s = (this.seed * 1664525) + 1013904223;
+            this.seed = s;
+            if ((s & this.mask) == 0) {
+                this.sink = o;
+                this.mask = (this.mask << 1) + 1;
+            }
+        }
+    }
+
+    private static abstract class Bench {
+        final String name;
+
+        Bench(String name) {
+            this.name = name;
+        }
+
+        void setUp() throws Exception {
+        }
+
+        abstract void run(Blackhole bh) throws Exception;
+
+        void tearDown() throws Exception {
+        }
+    }
+
+    private static abstract class ChartBench extends Bench {
+        private final int[] answers;
+        String[] names;
+        double[] scores;
+        private final String text;
+
+        ChartBench(String name, String text, int[] answers) {
+            super(name);
+            this.text = text;
+            this.answers = answers;
+        }
+
+        void setUp() {
+            this.scores = Survey.parse(this.text).compile().score(this.answers);
+            this.names = new String[this.scores.length];
+            for (int i = 0; i < this.names.length; i++) {
+                this.names[i] = "Type " + (i + 1);
+            }
+        }
+    }
+
+    private static class Sample {
+        double allocated;
+        double nanos;
+        long ops;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Logger.getLogger("").setLevel(Level.WARNING);
+        EngineBenchmark benchmark = new EngineBenchmark();
+        try {
+            benchmark.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        benchmark.runAll();
+    }
+
+    public EngineBenchmark() {
+        this.size = "all";
+        this.forks = 2;
+        this.warmup = 3;
+        this.iterations = 5;
+        this.iterationMillis = 1000;
+    }
+
+    public void parseArgs(String[] args) {
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i];
+            if (arg.equals("--help") || arg.equals("-h")) {
+                throw new IllegalArgumentException("");
+            }
+            if (arg.equals("--child")) {
+                this.child = true;
+            } else if (!arg.startsWith("--")) {
+                this.filter = Pattern.compile(arg);
+            } else if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            } else {
+                i++;
+                String value = args[i];
+                if (arg.equals("--size")) {
+                    if (!(value.equals("realistic") || value.equals("extreme") || value.equals("all"))) {
+                        throw new IllegalArgumentException("Unknown size " + value);
+                    }
+                    this.size = value;
+                } else if (arg.equals("--forks")) {
+                    this.forks = Math.max(0, Integer.parseInt(value));
+                } else if (arg.equals("--warmup")) {
+                    this.warmup = Integer.parseInt(value);
+                } else if (arg.equals("--iterations")) {
+                    this.iterations = Math.max(1, Integer.parseInt(value));
+                } else if (arg.equals("--time")) {
+                    this.iterationMillis = Math.max(1, Long.parseLong(value));
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            i++;
+        }
+    }
+
+    public void runAll() throws Exception {
+        ArrayList<Bench> benches = new ArrayList<>();
+        if (!this.size.equals("extreme")) {
+            addBenches(benches, "realistic", SurveyGenerator.realistic(SEED), 200);
+        }
+        if (!this.size.equals("realistic")) {
+            addBenches(benches, "extreme", SurveyGenerator.extreme(SEED), 4);
+        }
+        if (!this.child) {
+            System.out.printf("%s %s, %d forks with %d warmup and %d measured iterations of %d ms\n", new Object[]{System.getProperty("java.vm.name"), System.getProperty("java.version"), Integer.valueOf(this.forks), Integer.valueOf(this.warmup), Integer.valueOf(this.iterations), Long.valueOf(this.iterationMillis)});
+            System.out.printf("%-32s %14s %12s %14s %14s\n", new Object[]{"Benchmark", "ns/op", "error", "ops/s", "B/op"});
+        }
+        for (int i = 0; i < benches.size(); i++) {
+            Bench b = benches.get(i);
+            if (this.filter == null || this.filter.matcher(b.name).find()) {
+                List<Sample> samples;
+                if (this.forks == 0) {
+                    samples = measure(b);
+                } else {
+                    samples = new ArrayList<>();
+                    for (int f = 0; f < this.forks; f++) {
+                        if (!fork(b, samples)) {
+                            samples = null;
+                            break;
+                        }
+                    }
+                }
+                if (this.child) {
+                    for (int j = 0; j < samples.size(); j++) {
+                        Sample s = samples.get(j);
+                        System.out.println("sample " + s.nanos + " " + s.allocated + " " + s.ops);
+                    }
+                } else if (samples == null) {
+                    System.out.printf("%-32s %14s\n", new Object[]{b.name, "failed"});
+                } else {
+                    report(b.name, samples);
+                }
+            }
+        }
+    }
+
+    private List<Sample> measure(Bench b) throws Exception {
+        int i;
+        Blackhole bh = new Blackhole();
+        ArrayList<Sample> res = new ArrayList<>();
+        b.setUp();
+        try {
+            for (i = 0; i < this.warmup; i++) {
+                iteration(b, bh);
+            }
+            for (i = 0; i < this.iterations; i++) {
+                res.add(iteration(b, bh));
+            }
+        } finally {
+            b.tearDown();
+        }
+        return res;
+    }
+
+    private boolean fork(Bench b, List<Sample> samples) throws IOException, InterruptedException {
+        ArrayList<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EngineBenchmark.class.getName());
+        command.add("--child");
+        command.add("--forks");
+        command.add("0");
+        command.add("--size");
+        command.add(b.name.substring(b.name.indexOf(46) + 1));
+        command.add("--warmup");
+        command.add(String.valueOf(this.warmup));
+        command.add("--iterations");
+        command.add(String.valueOf(this.iterations));
+        command.add("--time");
+        command.add(String.valueOf(this.iterationMillis));
+        command.add("^" + Pattern.quote(b.name) + "$");
+        Process p = new ProcessBuilder(command).redirectError(Redirect.INHERIT).start();
+        BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream(), "UTF-8"));
+        int found = 0;
+        try {
+            while (true) {
+                String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (line.startsWith("sample ")) {
+                    String[] fields = line.split(" ");
+                    Sample s = new Sample();
+                    s.nanos = Double.parseDouble(fields[1]);
+                    s.allocated = Double.parseDouble(fields[2]);
+                    s.ops = Long.parseLong(fields[3]);
+                    samples.add(s);
+                    found++;
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return p.waitFor() == 0 && found > 0;
+    }
+
+    private static void report(String name, List<Sample> samples) {
+        int i;
+        double mean = 0.0d;
+        double allocated = 0.0d;
+        for (i = 0; i < samples.size(); i++) {
+            Sample s = samples.get(i);
+            mean += s.nanos;
+            allocated = (allocated < 0.0d || s.allocated < 0.0d) ? -1.0d : allocated + s.allocated;
+        }
+        int n = samples.size();
+        mean /= (double) n;
+        double var = 0.0d;
+        for (i = 0; i < n; i++) {
+            double d = samples.get(i).nanos - mean;
+            var += d * d;
+        }
+        double error = n > 1 ? Math.sqrt(var / ((double) (n - 1))) / Math.sqrt((double) n) : 0.0d;
+        System.out.printf("%-32s %14.1f %12.1f %14.1f %14s\n", new Object[]{name, Double.valueOf(mean), Double.valueOf(error), Double.valueOf(1.0E9d / mean), allocated < 0.0d ? "-" : String.format("%.0f", new Object[]{Double.valueOf(allocated / ((double) n))})});
+    }
+
+    private Sample iteration(Bench b, Blackhole bh) throws Exception {
+        long deadline = this.iterationMillis * 1000000;
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed = 0;
+        long ops = 0;
+        while (elapsed < deadline) {
+            b.run(bh);
+            ops++;
+            elapsed = System.nanoTime() - start;
+        }
+        long after = allocatedBytes();
+        Sample s = new Sample();
+        s.ops = ops;
+        s.nanos = ((double) elapsed) / ((double) ops);
+        s.allocated = (bytes < 0 || after < 0) ? -1.0d : ((double) (after - bytes)) / ((double) ops);
+        return s;
+    }
+
+    private static long allocatedBytes() {
+        if (threads == null) {
+            threads = ManagementFactory.getThreadMXBean();
+        }
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static File writeSurveys(String text, int files) throws IOException {
+        File dir = File.createTempFile("surveys", "");
+        dir.delete();
+        dir.mkdir();
+        for (int i = 0; i < files; i++) {
+            Writer out = new OutputStreamWriter(new FileOutputStream(new File(dir, "survey" + i + ".txt")), Parser.CHARSET);
+            try {
+                out.write(text);
+            } finally {
+                out.close();
+            }
+        }
+        return dir;
+    }
+
+    private static void deleteAll(File dir, String extension) {
+        File[] list = dir.listFiles();
+        for (int i = 0; i < list.length; i++) {
+            if (extension == null || list[i].getName().endsWith(extension)) {
+                list[i].delete();
+            }
+        }
+    }
+
+    private static Choice[] picks(CompiledSurvey compiled, int[] answers) {
+        Choice[] res = new Choice[compiled.getQuestionCount()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = compiled.getChoice(i, answers[i]);
+        }
+        return res;
+    }
+
+    private static void addBenches(List<Bench> benches, String label, final SurveyGenerator generator, final int files) {
+        final String text = generator.generate();
+        final int[] answers = generator.answers(1, SEED).next();
+        benches.add(new Bench("parse." + label) {
+            void run(Blackhole bh) {
+                bh.consume(Survey.parse(text));
+            }
+        });
+        benches.add(new Bench("readAll." + label) {
+            private File dir;
+
+            void setUp() throws IOException {
+                this.dir = EngineBenchmark.writeSurveys(text, files);
+            }
+
+            void run(Blackhole bh) throws IOException {
+                EngineBenchmark.deleteAll(this.dir, Parser.BINARY_EXTENSION);
+                bh.consume(Parser.readAll(this.dir));
+            }
+
+            void tearDown() {
+                EngineBenchmark.deleteAll(this.dir, null);
+                this.dir.delete();
+            }
+        });
+        benches.add(new Bench("readAllCached." + label) {
+            private File dir;
+
+            void setUp() throws IOException {
+                this.dir = EngineBenchmark.writeSurveys(text, files);
+                Parser.readAll(this.dir);
+            }
+
+            void run(Blackhole bh) throws IOException {
+                bh.consume(Parser.readAll(this.dir));
+            }
+
+            void tearDown() {
+                EngineBenchmark.deleteAll(this.dir, null);
+                this.dir.delete();
+            }
+        });
+        benches.add(new Bench("choose." + label) {
+            private Choice[] picks;
+            private Survey survey;
+
+            void setUp() {
+                this.survey = Survey.parse(text);
+                this.picks = EngineBenchmark.picks(this.survey.compile(), answers);
+            }
+
+            void run(Blackhole bh) {
+                for (int i = 0; i < this.picks.length; i++) {
+                    this.survey.choose(this.picks[i]);
+                }
+                bh.consume(this.survey);
+            }
+        });
+        benches.add(new Bench("getResults." + label) {
+            private Survey survey;
+
+            void setUp() {
+                this.survey = Survey.parse(text);
+                Choice[] picks = EngineBenchmark.picks(this.survey.compile(), answers);
+                for (int i = 0; i < picks.length; i++) {
+                    this.survey.choose(picks[i]);
+                }
+            }
+
+            void run(Blackhole bh) {
+                bh.consume(this.survey.getResults());
+            }
+        });
+        benches.add(new Bench("score." + label) {
+            private double[] buffer;
+            private CompiledSurvey compiled;
+            private int next;
+            private int[][] sheets;
+
+            void setUp() {
+                this.compiled = Survey.parse(text).compile();
+                this.buffer = this.compiled.newScores();
+                this.sheets = new int[SHEETS][];
+                Iterator<int[]> it = generator.answers((long) this.sheets.length, SEED);
+                for (int i = 0; i < this.sheets.length; i++) {
+                    this.sheets[i] = it.next();
+                }
+            }
+
+            void run(Blackhole bh) {
+                this.compiled.score(this.sheets[this.next], this.buffer);
+                this.next = (this.next + 1) % this.sheets.length;
+                bh.consume(this.compiled.match(this.buffer));
+            }
+        });
+        benches.add(new Bench("check." + label) {
+            private CompiledSurvey compiled;
+            private double[] scores;
+
+            void setUp() {
+                this.compiled = Survey.parse(text).compile();
+                this.scores = this.compiled.score(answers);
+            }
+
+            void run(Blackhole bh) {
+                long n = 0;
+                for (int i = 0; i < this.compiled.getResultCount(); i++) {
+                    if (this.compiled.getResult(i).check(this.scores)) {
+                        n++;
+                    }
+                }
+                bh.consume(n);
+            }
+        });
+        benches.add(new ChartBench("pieChart." + label, text, answers) {
+            void run(Blackhole bh) {
+                bh.consume(PieChart.createChart("Results", this.names, this.scores));
+            }
+        });
+        benches.add(new ChartBench("barChart." + label, text, answers) {
+            void run(Blackhole bh) {
+                bh.consume(BarChart.createChart(BarChart.createDataset(this.names, this.scores, "Chart"), "Results", "Categories", "Points"));
+            }
+        });
+        benches.add(new ChartBench("renderPng." + label, text, answers) {
+            private ChartRenderer renderer;
+
+            void setUp() {
+                super.setUp();
+                this.renderer = new ChartRenderer();
+            }
+
+            void run(Blackhole bh) throws IOException {
+                bh.consume(this.renderer.renderPie("Results", this.names, this.scores));
+            }
+        });
+    }
+}
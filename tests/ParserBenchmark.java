@@ -0,0 +1,65 @@
+package tests;
+
+import common.Survey;
+import common.SurveyReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.Random;
+
+public class ParserBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static String generate(int questions, int choices, int types, long seed) {
+        int i;
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        sb.append("Generated survey # benchmark input\n");
+        sb.append(questions).append('\n');
+        for (i = 0; i < questions; i++) {
+            sb.append("Question number ").append(i + 1).append(", how do you feel about option ").append(random.nextInt(1000)).append("?\n");
+            sb.append(choices).append('\n');
+            for (int j = 0; j < choices; j++) {
+                sb.append("Choice ").append(j + 1).append(" of question ").append(i + 1).append('\n');
+                for (int k = 0; k < 3; k++) {
+                    sb.append(random.nextInt(types) + 1).append(' ').append(random.nextInt(100) / 10.0d).append(' ');
+                }
+                sb.append('\n');
+            }
+            sb.append('\n');
+        }
+        sb.append(types).append('\n');
+        for (i = 1; i <= types; i++) {
+            sb.append("You are type ").append(i).append('\n');
+            sb.append("0 ").append(i).append('\n');
+        }
+        sb.append(types).append('\n');
+        for (i = 1; i <= types; i++) {
+            sb.append("Type ").append(i).append('\n');
+        }
+        sb.append("www.example.com\n");
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int questions = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        String text = generate(questions, 5, 12, 42);
+        System.out.printf("Survey with %d questions, %.1f MB of text\n", new Object[]{Integer.valueOf(questions), Double.valueOf(((double) text.length()) / 1048576.0d)});
+        if (!Survey.parseWithScanner(text).toString().equals(Survey.parse(text).toString())) {
+            System.out.println("Parsers disagree!");
+            return;
+        }
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            Survey.parseWithScanner(text);
+            long scanner = System.nanoTime() - start;
+            start = System.nanoTime();
+            new SurveyReader(CharBuffer.wrap(text.toCharArray())).read();
+            long buffer = System.nanoTime() - start;
+            start = System.nanoTime();
+            new SurveyReader(new StringReader(text)).read();
+            long reader = System.nanoTime() - start;
+            System.out.printf("Round %d: Scanner %8.1f ms, SurveyReader(CharBuffer) %8.1f ms, SurveyReader(Reader) %8.1f ms\n", new Object[]{Integer.valueOf(round), Double.valueOf(((double) scanner) / 1000000.0d), Double.valueOf(((double) buffer) / 1000000.0d), Double.valueOf(((double) reader) / 1000000.0d)});
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Base64;
+import server.ScoreServer;
+
+public class ScoreServerTest {
+    private static final int MAX_SHOWN = 300;
+    private int checks;
+    private int failures;
+
+    private static class Response {
+        final String body;
+        final int status;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        ScoreServer server = new ScoreServer(new File(args.length > 0 ? args[0] : "./assets"), 0);
+        server.start();
+        ScoreServerTest test = new ScoreServerTest();
+        try {
+            test.run("http://localhost:" + server.getPort() + "/surveys");
+        } finally {
+            server.stop();
+        }
+        System.out.println(test.checks + " checks, " + test.failures + " failed");
+        System.exit(test.failures == 0 ? 0 : 1);
+    }
+
+    private void run(String base) throws IOException {
+        Response list = request("GET", base, null);
+        if (!check("list surveys", list, 200, "[{\"id\":\"")) {
+            return;
+        }
+        String id = list.body.substring(8, list.body.indexOf(34, 8));
+        int start = list.body.indexOf("\"questions\":") + 12;
+        int questions = Integer.parseInt(list.body.substring(start, list.body.indexOf(125, start)));
+        check("describe survey", request("GET", base + "/" + id, null), 200, "\"questions\":[");
+        check("score", request("POST", base + "/" + id + "/score", answers(questions, "1")), 200, "\"scores\":{");
+        Response chart = request("POST", base + "/" + id + "/score?chart=png", answers(questions, "1"));
+        if (check("score with chart", chart, 200, "\"chart\":\"data:image/png;base64,")) {
+            int from = chart.body.indexOf("base64,") + 7;
+            byte[] png = Base64.getDecoder().decode(chart.body.substring(from, chart.body.indexOf(34, from)));
+            expect("chart is a PNG", png.length > 8 && png[0] == (byte) 0x89 && png[1] == (byte) 'P' && png[2] == (byte) 'N' && png[3] == (byte) 'G');
+        }
+        check("no answers", request("POST", base + "/" + id + "/score", "{\"answers\": []}"), 400, "\"error\":");
+        check("bad JSON", request("POST", base + "/" + id + "/score", "{\"answers\": [1,"), 400, "\"error\":");
+        check("answer 0", request("POST", base + "/" + id + "/score", answers(questions, "0")), 400, "\"error\":");
+        check("answer out of range", request("POST", base + "/" + id + "/score", answers(questions, "99")), 400, "\"error\":");
+        check("unknown survey", request("GET", base + "/no-such-survey", null), 404, "\"error\":");
+        check("score with GET", request("GET", base + "/" + id + "/score", null), 405, "\"error\":");
+    }
+
+    private static String answers(int questions, String answer) {
+        StringBuilder sb = new StringBuilder("{\"answers\": [");
+        for (int i = 0; i < questions; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(answer);
+        }
+        return sb.append("]}").toString();
+    }
+
+    private boolean check(String name, Response response, int status, String prefix) {
+        boolean ok = response.status == status && response.body.indexOf(prefix) >= 0;
+        if (!ok) {
+            System.out.println("  expected " + status + " with " + prefix + ", got " + response.status + ": " + (response.body.length() > MAX_SHOWN ? response.body.substring(0, MAX_SHOWN) + "..." : response.body));
+        }
+        return expect(name, ok);
+    }
+
+    private boolean expect(String name, boolean ok) {
+        this.checks++;
+        if (!ok) {
+            this.failures++;
+        }
+        System.out.println((ok ? "PASS " : "FAIL ") + name);
+        return ok;
+    }
+
+    private static Response request(String method, String url, String body) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+        c.setRequestMethod(method);
+        if (body != null) {
+            c.setDoOutput(true);
+            OutputStream out = c.getOutputStream();
+            out.write(body.getBytes("UTF-8"));
+            out.close();
+        }
+        int status = c.getResponseCode();
+        InputStream in = status < 400 ? c.getInputStream() : c.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (true) {
+            int n = in.read(buffer);
+            if (n < 0) {
+                break;
+            }
+            bytes.write(buffer, 0, n);
+        }
+        in.close();
+        return new Response(status, new String(bytes.toByteArray(), "UTF-8"));
+    }
+}